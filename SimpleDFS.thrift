@@ -2,6 +2,56 @@ exception DFSError {
 	1: string msg
 }
 
+struct VersionedContent {
+	1: i32 version,
+	2: optional string content
+}
+
+// same as VersionedContent, with the content as raw bytes
+struct VersionedData {
+	1: i32 version,
+	2: optional binary content
+}
+
+// part of a file's content, with the version it belongs to and the size of the whole content
+struct ContentChunk {
+	1: i32 version,
+	2: i64 size,
+	3: binary data
+}
+
+// a file as the hashes of its content defined chunks, in order
+struct ChunkManifest {
+	1: i32 version,
+	2: i64 size,
+	3: list<string> hashes
+}
+
+// answer to offering a version as a manifest. not committed until the node has every chunk,
+// missing lists the ones it still needs
+struct ManifestReply {
+	1: bool committed,
+	2: bool created,
+	3: list<string> missing
+}
+
+struct QuorumState {
+	1: i32 readVotes,
+	2: i32 writeVotes,
+	3: i32 totalVotes,
+	4: i64 switches,
+	5: double readFraction
+}
+
+struct PeerScore {
+	1: string address,
+	2: i32 port,
+	3: double latencyMs,
+	4: double errorRate,
+	5: i64 samples,
+	6: i64 errors
+}
+
 service NodeService {
 	// exposed services
 	bool write(1: string filename, 2: string content)  throws (1: DFSError dfse),
@@ -14,5 +64,60 @@ service NodeService {
 	// coordinator services
 	bool coordWrite(1: string filename, 2: string content) throws (1: DFSError dfse),
     string coordRead(1: string filename) throws (1: DFSError dfse),
-    map<string, i32> coordLS() throws (1: DFSError dfse)
+    map<string, i32> coordLS() throws (1: DFSError dfse),
+	// version and content in one round trip, content only sent if newer than minVersion
+	VersionedContent quorumReadVersioned(1: string filename, 2: i32 minVersion) throws (1: DFSError dfse),
+	// up to maxEntries name to version entries, in name order after startAfter
+	map<string, i32> quorumVersionPage(1: string startAfter, 2: i32 maxEntries) throws (1: DFSError dfse),
+	// admin services
+	// latency and error averages this node keeps for every node, itself included
+	list<PeerScore> peerScores(),
+	// quorums a coordinator uses right now, and the share of reads they were picked for
+	QuorumState quorumState() throws (1: DFSError dfse),
+	// raw bytes versions of the services above, the string ones are utf-8 on top of these. the
+	// quorum and coordinator services pass content on as it is stored, compressed with
+	// compression.codec set, and quorum chunk reads send a compressed file whole. the services
+	// clients call decompress it
+	bool writeBytes(1: string filename, 2: binary content) throws (1: DFSError dfse),
+	binary readBytes(1: string filename) throws (1: DFSError dfse),
+	bool quorumWriteBytes(1: string filename, 2: binary content, 3: i32 version) throws (1: DFSError dfse),
+	binary quorumReadBytes(1: string filename) throws (1: DFSError dfse),
+	VersionedData quorumReadVersionedBytes(1: string filename, 2: i32 minVersion) throws (1: DFSError dfse),
+	bool coordWriteBytes(1: string filename, 2: binary content) throws (1: DFSError dfse),
+	binary coordReadBytes(1: string filename) throws (1: DFSError dfse),
+	// chunked transfers of large files. an upload is staged in pieces and only becomes the next
+	// version once committed. a read passes the version of its first chunk to the next ones
+	string openUpload(1: string filename) throws (1: DFSError dfse),
+	void writeChunk(1: string filename, 2: string uploadId, 3: i64 offset, 4: binary data) throws (1: DFSError dfse),
+	bool commitUpload(1: string filename, 2: string uploadId) throws (1: DFSError dfse),
+	ContentChunk readChunk(1: string filename, 2: i32 version, 3: i64 offset, 4: i32 length) throws (1: DFSError dfse),
+	string coordOpenUpload(1: string filename) throws (1: DFSError dfse),
+	void coordWriteChunk(1: string filename, 2: string uploadId, 3: i64 offset, 4: binary data) throws (1: DFSError dfse),
+	bool coordCommitUpload(1: string filename, 2: string uploadId) throws (1: DFSError dfse),
+	ContentChunk coordReadChunk(1: string filename, 2: i32 version, 3: i64 offset, 4: i32 length) throws (1: DFSError dfse),
+	void quorumWriteChunk(1: string filename, 2: string uploadId, 3: i64 offset, 4: binary data) throws (1: DFSError dfse),
+	bool quorumCommit(1: string filename, 2: string uploadId, 3: i32 version, 4: i64 size) throws (1: DFSError dfse),
+	ContentChunk quorumReadChunk(1: string filename, 2: i32 version, 3: i64 offset, 4: i32 length) throws (1: DFSError dfse),
+	// chunk level transfers, only the chunks a node doesn't have yet are sent to it. a manifest is
+	// offered first, the chunks it says are missing are put, the last of them along with the
+	// manifest once more to commit it
+	ManifestReply quorumWriteManifest(1: string filename, 2: i32 version, 3: list<string> hashes, 4: map<string, binary> chunks) throws (1: DFSError dfse),
+	void quorumPutChunks(1: map<string, binary> chunks) throws (1: DFSError dfse),
+	ChunkManifest quorumManifest(1: string filename) throws (1: DFSError dfse),
+	map<string, binary> quorumGetChunks(1: list<string> hashes) throws (1: DFSError dfse),
+	// deltas, only the changed bytes are sent. a patch overwrites the bytes from offset on and may
+	// run past the end, it fails unless the file is on baseVersion (0 if it doesn't exist yet).
+	// both return the new version
+	i32 append(1: string filename, 2: binary data) throws (1: DFSError dfse),
+	i32 patch(1: string filename, 2: i32 baseVersion, 3: i64 offset, 4: binary data) throws (1: DFSError dfse),
+	// a baseVersion of -1 is whatever version the file is on, an offset of -1 is the end of the file
+	i32 coordPatch(1: string filename, 2: i32 baseVersion, 3: i64 offset, 4: binary data) throws (1: DFSError dfse),
+	// applied only if the replica is on baseVersion, returns the version it was on before, or -1
+	// if the file is compressed and the coordinator has to patch it and write it whole
+	i32 quorumPatch(1: string filename, 2: i32 baseVersion, 3: i32 version, 4: i64 offset, 5: binary data) throws (1: DFSError dfse),
+	// a part of the latest version, at most chunk.size bytes of it. a negative offset counts from
+	// the end, -n with a length of n is the last n bytes. the rest goes through readChunk
+	ContentChunk readRange(1: string filename, 2: i64 offset, 3: i32 length) throws (1: DFSError dfse),
+	// version and a part of the content in one round trip, the part only sent if newer than minVersion
+	ContentChunk quorumReadVersionedChunk(1: string filename, 2: i32 minVersion, 3: i64 offset, 4: i32 length) throws (1: DFSError dfse)
 }
\ No newline at end of file
@@ -0,0 +1,206 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * The read and write quorums a coordinator currently uses, out of a fixed list of valid pairs,
+ * and the read/write mix they are picked by. Every quorum read and write round holds a gate
+ * while it runs, so changing a quorum waits for the rounds still using the old one to drain.
+ * Picking the next pair is done here; the order the quorums are changed in, which keeps them
+ * overlapping, is up to the coordinator.
+ */
+public class AdaptiveQuorum {
+    private final QuorumConfig quorumConfig;
+    final List<Pair> pairs = new ArrayList<>();
+    private final double margin;
+    private final long minOps;
+
+    private volatile int readVotes;
+    private volatile int writeVotes;
+    private final ReentrantReadWriteLock readGate = new ReentrantReadWriteLock();
+    private final ReentrantReadWriteLock writeGate = new ReentrantReadWriteLock();
+
+    // workload since the last pick
+    private final AtomicLong reads = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+    private volatile double readFraction = -1;
+    private volatile long switches = 0;
+
+    static class Pair {
+        final int read;
+        final int write;
+
+        Pair(int read, int write) {
+            this.read = read;
+            this.write = write;
+        }
+
+        @Override
+        public String toString() {
+            return read + ":" + write;
+        }
+    }
+
+    /**
+     * @param prop
+     * @param quorumConfig
+     * @throws IllegalArgumentException if any of the pairs isn't a valid quorum
+     */
+    AdaptiveQuorum(Properties prop, QuorumConfig quorumConfig) {
+        this.quorumConfig = quorumConfig;
+        String defaultPair = quorumConfig.readVotes + ":" + quorumConfig.writeVotes;
+        for (String pair : prop.getProperty("quorum.pairs", defaultPair).split("\\s*,\\s*")) {
+            String[] readWrite = pair.split("\\s*:\\s*");
+            Pair candidate = new Pair(Integer.parseInt(readWrite[0]), Integer.parseInt(readWrite[1]));
+            quorumConfig.checkQuorums(candidate.read, candidate.write);
+            pairs.add(candidate);
+        }
+        // only switch for at least this much less expected traffic, and with enough ops to go by
+        margin = Double.parseDouble(prop.getProperty("quorum.adapt.margin", "0.1"));
+        minOps = Long.parseLong(prop.getProperty("quorum.adapt.minops", "50"));
+
+        // the largest read quorum overlaps the write quorums of every pair, so it is safe to
+        // start with whatever pair was used before a restart
+        Pair start = pairs.get(0);
+        for (Pair pair : pairs) {
+            if (pair.read > start.read) {
+                start = pair;
+            }
+        }
+        readVotes = start.read;
+        writeVotes = start.write;
+    }
+
+    /**
+     * @return votes of the largest read quorum of all the pairs, which overlaps the write
+     * quorum of any pair, whichever one a coordinator is on
+     */
+    int largestRead() {
+        int votes = 0;
+        for (Pair pair : pairs) {
+            votes = Math.max(votes, pair.read);
+        }
+        return votes;
+    }
+
+    /**
+     * start a quorum read, finish it with endRead.
+     *
+     * @return votes the read quorum needs
+     */
+    int beginRead() {
+        readGate.readLock().lock();
+        return readVotes;
+    }
+
+    void endRead() {
+        readGate.readLock().unlock();
+    }
+
+    /**
+     * start a quorum write round, finish it with endWrite.
+     *
+     * @return votes the write quorum needs
+     */
+    int beginWrite() {
+        writeGate.readLock().lock();
+        return writeVotes;
+    }
+
+    void endWrite() {
+        writeGate.readLock().unlock();
+    }
+
+    void countRead() {
+        reads.incrementAndGet();
+    }
+
+    void countWrite() {
+        writes.incrementAndGet();
+    }
+
+    /**
+     * change the read quorum once all reads on the old one are done.
+     *
+     * @param votes
+     */
+    void setRead(int votes) {
+        readGate.writeLock().lock();
+        try {
+            readVotes = votes;
+        } finally {
+            readGate.writeLock().unlock();
+        }
+    }
+
+    /**
+     * change the write quorum once all write rounds on the old one are done.
+     *
+     * @param votes
+     */
+    void setWrite(int votes) {
+        writeGate.writeLock().lock();
+        try {
+            writeVotes = votes;
+        } finally {
+            writeGate.writeLock().unlock();
+        }
+    }
+
+    Pair current() {
+        return new Pair(readVotes, writeVotes);
+    }
+
+    void switched() {
+        switches++;
+    }
+
+    /**
+     * @param pair
+     * @param readShare
+     * @return messages per operation: a version round plus a fetch on reads, and a version round
+     * plus a write round on writes, each round to as few nodes as can hold the votes
+     */
+    double expectedMessages(Pair pair, double readShare) {
+        return readShare * (quorumConfig.fewestNodes(pair.read) + 1)
+                + (1 - readShare) * 2 * quorumConfig.fewestNodes(pair.write);
+    }
+
+    /**
+     * look at the mix since the last call and pick the pair with the fewest expected messages.
+     *
+     * @return the pair to switch to, null to stay with the current one
+     */
+    Pair choose() {
+        long readCount = reads.getAndSet(0);
+        long writeCount = writes.getAndSet(0);
+        if (readCount + writeCount < minOps) {
+            return null;
+        }
+        double readShare = (double) readCount / (readCount + writeCount);
+        readFraction = readShare;
+        Pair current = current();
+        Pair best = current;
+        for (Pair pair : pairs) {
+            if (expectedMessages(pair, readShare) < expectedMessages(best, readShare)) {
+                best = pair;
+            }
+        }
+        if (expectedMessages(best, readShare) > (1 - margin) * expectedMessages(current, readShare)) {
+            return null;
+        }
+        return best;
+    }
+
+    QuorumState state() {
+        return new QuorumState(readVotes, writeVotes, quorumConfig.totalVotes, switches, readFraction);
+    }
+
+    String stats() {
+        return String.format("quorums: read/write=%d/%d of %d votes pairs=%s reads=%s switches=%d",
+                readVotes, writeVotes, quorumConfig.totalVotes, pairs,
+                readFraction < 0 ? "unknown" : String.format("%.0f%%", 100 * readFraction), switches);
+    }
+}
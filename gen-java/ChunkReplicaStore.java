@@ -0,0 +1,763 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Replicas split into content defined chunks, each kept once in a chunk directory under the
+ * sha-256 of its bytes, no matter how many files and versions it is part of. A file is a
+ * manifest listing its version and chunks in order, or holding the content itself if it's no
+ * larger than the smallest chunk. Chunks count their references from the
+ * manifests, and one is deleted as soon as no manifest refers to it any more. Chunks that were
+ * never referenced, e.g. sent for a version that didn't get committed, are collected by a
+ * background sweep once they are old enough.
+ *
+ * A chunk is referenced before it is written or found to be there already, so it can't be
+ * deleted in between. Temporary files go to a directory of their own, emptied on startup.
+ */
+public class ChunkReplicaStore implements ReplicaStore {
+    private static final int HASH_LENGTH = 64;
+
+    private final Path chunkDirectory;
+    private final Path manifestDirectory;
+    private final Path tempDirectory;
+    private final ContentChunker chunker;
+    private final long gcDelay;
+
+    private final ConcurrentSkipListMap<String, Manifest> index = new ConcurrentSkipListMap<>();
+    // references to every chunk from the manifests, chunks that aren't in here can go
+    private final Map<String, Integer> references = new HashMap<>();
+    // writers of the same file take turns
+    private final FileLocks writeLocks = new FileLocks(64);
+    // names for temporary files, unique while the store runs
+    private final AtomicLong tempFiles = new AtomicLong();
+
+    // metrics
+    private final AtomicLong storedChunks = new AtomicLong();
+    private final AtomicLong storedBytes = new AtomicLong();
+    private final AtomicLong logicalBytes = new AtomicLong();
+    private final AtomicLong inlineBytes = new AtomicLong();
+    private final AtomicLong sharedChunks = new AtomicLong();
+    private final AtomicLong writtenChunks = new AtomicLong();
+    private final AtomicLong collectedChunks = new AtomicLong();
+
+    private static class Manifest {
+        final int version;
+        final String[] hashes;
+        // where every chunk starts in the content
+        final long[] offsets;
+        // content kept in the manifest file, for files without chunks
+        final int inlineLength;
+        final long size;
+
+        Manifest(int version, List<String> hashes, List<Integer> lengths, int inlineLength) {
+            this.version = version;
+            this.inlineLength = inlineLength;
+            this.hashes = hashes.toArray(new String[0]);
+            this.offsets = new long[hashes.size()];
+            long offset = 0;
+            for (int i = 0; i < offsets.length; i++) {
+                offsets[i] = offset;
+                offset += lengths.get(i);
+            }
+            this.size = offset + inlineLength;
+        }
+
+        int length(int chunk) {
+            return (int) ((chunk + 1 < offsets.length ? offsets[chunk + 1] : size) - offsets[chunk]);
+        }
+    }
+
+    /**
+     * thrown when a manifest refers to chunks the store doesn't have.
+     */
+    static class MissingChunksException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        final List<String> hashes;
+
+        MissingChunksException(List<String> hashes) {
+            super(String.format("%d chunks are missing.", hashes.size()));
+            this.hashes = hashes;
+        }
+    }
+
+    ChunkReplicaStore(String replicaPath, Properties prop) throws IOException {
+        chunkDirectory = Paths.get(replicaPath, "chunks");
+        manifestDirectory = Paths.get(replicaPath, "manifests");
+        tempDirectory = Paths.get(replicaPath, "tmp");
+        chunker = new ContentChunker(prop);
+        gcDelay = Long.parseLong(prop.getProperty("store.chunk.gcdelay", "60000"));
+        // one directory per first byte of the hash, made up front so storing a chunk never has to
+        for (int prefix = 0; prefix < 256; prefix++) {
+            Files.createDirectories(chunkDirectory.resolve(String.format("%02x", prefix)));
+        }
+        Files.createDirectories(manifestDirectory);
+        Files.createDirectories(tempDirectory);
+        recover();
+
+        Thread collector = new Thread(this::collectLoop);
+        collector.setDaemon(true);
+        collector.start();
+    }
+
+    /**
+     * read the manifests back, count their references, and delete the chunks nobody refers to.
+     *
+     * @throws IOException
+     */
+    private void recover() throws IOException {
+        try (DirectoryStream<Path> temps = Files.newDirectoryStream(tempDirectory)) {
+            // writes and uploads that didn't finish before the restart
+            for (Path temp : temps) {
+                Files.delete(temp);
+            }
+        }
+        try (DirectoryStream<Path> manifests = Files.newDirectoryStream(manifestDirectory)) {
+            for (Path path : manifests) {
+                Manifest manifest = readManifest(path);
+                index.put(path.getFileName().toString(), manifest);
+                logicalBytes.addAndGet(manifest.size);
+                inlineBytes.addAndGet(manifest.inlineLength);
+                reference(Arrays.asList(manifest.hashes));
+            }
+        }
+        long unreferenced = collect(0);
+        if (!index.isEmpty()) {
+            System.out.printf("Recovered %d files in %d chunks, deleted %d unreferenced chunks.\n",
+                    index.size(), storedChunks.get(), unreferenced);
+        }
+    }
+
+    private Path chunkPath(String hash) {
+        return chunkDirectory.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    /**
+     * a file's manifest is named after the file, so the name can't lead out of the manifest directory.
+     *
+     * @param fileName
+     * @return
+     * @throws IOException if the name isn't a plain file name
+     */
+    private Path manifestPath(String fileName) throws IOException {
+        try {
+            Path path = manifestDirectory.resolve(fileName);
+            if (manifestDirectory.equals(path.getParent()) && !fileName.equals(".") && !fileName.equals("..")) {
+                return path;
+            }
+        } catch (InvalidPathException e) {
+            // falls through
+        }
+        throw new IOException(String.format("%s can't be a file name.", fileName));
+    }
+
+    private static Manifest readManifest(Path path) throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(path));
+        int version = bytes.getInt();
+        int count = bytes.getInt();
+        List<String> hashes = new ArrayList<>(count);
+        List<Integer> lengths = new ArrayList<>(count);
+        byte[] hash = new byte[HASH_LENGTH];
+        for (int i = 0; i < count; i++) {
+            lengths.add(bytes.getInt());
+            bytes.get(hash);
+            hashes.add(new String(hash, StandardCharsets.US_ASCII));
+        }
+        return new Manifest(version, hashes, lengths, bytes.remaining());
+    }
+
+    /**
+     * @param fileName
+     * @param manifest
+     * @param inline content to keep in the manifest, null if there is none
+     * @throws IOException
+     */
+    private void writeManifest(String fileName, Manifest manifest, ByteBuffer inline) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate(8 + manifest.hashes.length * (4 + HASH_LENGTH) + manifest.inlineLength);
+        bytes.putInt(manifest.version);
+        bytes.putInt(manifest.hashes.length);
+        for (int i = 0; i < manifest.hashes.length; i++) {
+            bytes.putInt(manifest.length(i));
+            bytes.put(manifest.hashes[i].getBytes(StandardCharsets.US_ASCII));
+        }
+        if (inline != null) {
+            bytes.put(inline.duplicate());
+        }
+        Path path = manifestPath(fileName);
+        // write aside and swap it in, so a crash never leaves half a manifest
+        Path temp = tempDirectory.resolve("manifest-" + tempFiles.incrementAndGet());
+        Files.write(temp, bytes.array());
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void reference(Collection<String> hashes) {
+        synchronized (references) {
+            for (String hash : hashes) {
+                references.merge(hash, 1, Integer::sum);
+            }
+        }
+    }
+
+    /**
+     * drop references, deleting the chunks that have none left.
+     *
+     * @param hashes
+     */
+    private void release(Collection<String> hashes) {
+        synchronized (references) {
+            for (String hash : hashes) {
+                if (references.merge(hash, -1, Integer::sum) <= 0) {
+                    references.remove(hash);
+                    deleteChunk(hash);
+                }
+            }
+        }
+    }
+
+    /**
+     * only called holding the references lock, with no references to the chunk left.
+     *
+     * @param hash
+     */
+    private void deleteChunk(String hash) {
+        Path path = chunkPath(hash);
+        try {
+            long size = Files.size(path);
+            Files.delete(path);
+            storedChunks.decrementAndGet();
+            storedBytes.addAndGet(-size);
+            collectedChunks.incrementAndGet();
+        } catch (NoSuchFileException e) {
+            // never written, its write failed
+        } catch (IOException e) {
+            System.out.printf("Couldn't delete chunk %s: %s\n", hash, e);
+        }
+    }
+
+    /**
+     * put a chunk in the chunk directory, unless it's there already.
+     *
+     * @param hash
+     * @param chunk left as it is
+     * @throws IOException
+     */
+    private void storeChunk(String hash, ByteBuffer chunk) throws IOException {
+        Path path = chunkPath(hash);
+        try {
+            // found again it counts as new to the sweep, whoever stores it may not refer to it yet
+            Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+            sharedChunks.incrementAndGet();
+            return;
+        } catch (NoSuchFileException e) {
+            // not there yet
+        }
+        Path temp = tempDirectory.resolve("chunk-" + tempFiles.incrementAndGet());
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            ByteBuffer bytes = chunk.duplicate();
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        }
+        // two writers of the same chunk both write the same bytes, whoever moves last wins
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        storedChunks.incrementAndGet();
+        storedBytes.addAndGet(chunk.remaining());
+        writtenChunks.incrementAndGet();
+    }
+
+    /**
+     * make a manifest the file's current one, unless the file is on that version or a newer one
+     * already. the chunks of the manifest have to be referenced already, and are released again
+     * if it isn't installed. only called holding the file's write lock.
+     *
+     * @param fileName
+     * @param manifest
+     * @param inline content to keep in the manifest, null if there is none
+     * @return the version the file was on before, 0 if it didn't exist
+     * @throws IOException
+     */
+    private int install(String fileName, Manifest manifest, ByteBuffer inline) throws IOException {
+        Manifest current = index.get(fileName);
+        int currentVersion = current != null ? current.version : 0;
+        if (currentVersion >= manifest.version) {
+            release(Arrays.asList(manifest.hashes));
+            return currentVersion;
+        }
+        try {
+            writeManifest(fileName, manifest, inline);
+        } catch (IOException e) {
+            release(Arrays.asList(manifest.hashes));
+            throw e;
+        }
+        index.put(fileName, manifest);
+        logicalBytes.addAndGet(manifest.size - (current != null ? current.size : 0));
+        inlineBytes.addAndGet(manifest.inlineLength - (current != null ? current.inlineLength : 0));
+        if (current != null) {
+            release(Arrays.asList(current.hashes));
+        }
+        return currentVersion;
+    }
+
+    @Override
+    public void load(Path source) throws IOException {
+        try (DirectoryStream<Path> originals = Files.newDirectoryStream(source)) {
+            for (Path original : originals) {
+                String fileName = original.getFileName().toString();
+                if (!index.containsKey(fileName)) {
+                    VersionedData data = ReplicaStore.readOriginal(original);
+                    write(fileName, data.content, data.version);
+                }
+            }
+        }
+    }
+
+    @Override
+    public int write(String fileName, ByteBuffer content, int version) throws IOException {
+        // content too small to be worth a chunk goes in the manifest itself
+        boolean inline = content.remaining() <= chunker.minSize;
+        ContentChunker.Split split = inline ? new ContentChunker.Split() : chunker.split(content);
+        List<Integer> lengths = new ArrayList<>(split.hashes.size());
+        for (String hash : split.hashes) {
+            lengths.add(split.chunks.get(hash).remaining());
+        }
+        writeLocks.lock(fileName);
+        try {
+            if (version(fileName) >= version) {
+                return version(fileName);
+            }
+            reference(split.hashes);
+            try {
+                for (Map.Entry<String, ByteBuffer> chunk : split.chunks.entrySet()) {
+                    storeChunk(chunk.getKey(), chunk.getValue());
+                }
+            } catch (IOException e) {
+                release(split.hashes);
+                throw e;
+            }
+            return install(fileName, new Manifest(version, split.hashes, lengths, inline ? content.remaining() : 0), inline ? content : null);
+        } finally {
+            writeLocks.unlock(fileName);
+        }
+    }
+
+    /**
+     * @param hashes
+     * @return the chunks out of these that aren't in the store, each once
+     */
+    List<String> missing(Collection<String> hashes) {
+        Set<String> missing = new LinkedHashSet<>();
+        for (String hash : hashes) {
+            if (!Files.exists(chunkPath(hash))) {
+                missing.add(hash);
+            }
+        }
+        return new ArrayList<>(missing);
+    }
+
+    /**
+     * put a chunk sent by another node in the store, to be referenced by a manifest soon.
+     *
+     * @param hash
+     * @param chunk left as it is
+     * @throws IOException if the bytes don't match the hash
+     */
+    void putChunk(String hash, ByteBuffer chunk) throws IOException {
+        if (!ContentChunker.hash(chunk).equals(hash)) {
+            throw new IOException(String.format("Chunk %s came with bytes of another hash.", hash));
+        }
+        storeChunk(hash, chunk);
+    }
+
+    /**
+     * make a list of chunks the given version of a file, unless the store already has that
+     * version or a newer one.
+     *
+     * @param fileName
+     * @param version
+     * @param hashes
+     * @return the version the file was on before, 0 if it didn't exist
+     * @throws MissingChunksException if the store lacks some of the chunks
+     * @throws IOException
+     */
+    int writeManifest(String fileName, int version, List<String> hashes) throws IOException {
+        writeLocks.lock(fileName);
+        try {
+            if (version(fileName) >= version) {
+                return version(fileName);
+            }
+            reference(hashes);
+            List<Integer> lengths = new ArrayList<>(hashes.size());
+            Set<String> missing = new LinkedHashSet<>();
+            for (String hash : hashes) {
+                try {
+                    lengths.add((int) Files.size(chunkPath(hash)));
+                } catch (NoSuchFileException e) {
+                    missing.add(hash);
+                }
+            }
+            if (!missing.isEmpty()) {
+                release(hashes);
+                throw new MissingChunksException(new ArrayList<>(missing));
+            }
+            return install(fileName, new Manifest(version, hashes, lengths, 0), null);
+        } finally {
+            writeLocks.unlock(fileName);
+        }
+    }
+
+    /**
+     * @param fileName
+     * @return current version and chunks of the file, null if it doesn't exist here
+     */
+    ChunkManifest manifest(String fileName) {
+        Manifest manifest = index.get(fileName);
+        return manifest != null ? new ChunkManifest(manifest.version, manifest.size, Arrays.asList(manifest.hashes)) : null;
+    }
+
+    /**
+     * @param hash
+     * @return the bytes of the chunk, null if it isn't in the store
+     * @throws IOException
+     */
+    ByteBuffer chunk(String hash) throws IOException {
+        try {
+            return ByteBuffer.wrap(Files.readAllBytes(chunkPath(hash)));
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * the version comes from the manifest file, like the content, a write may have replaced
+     * it since the index was looked at.
+     *
+     * @param fileName
+     * @return version and content of a file kept in its manifest, null if the manifest has chunks by now
+     * @throws IOException
+     */
+    private VersionedData readInline(String fileName) throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(manifestPath(fileName)));
+        if (bytes.getInt(4) != 0) {
+            return null;
+        }
+        VersionedData data = new VersionedData(bytes.getInt(0));
+        bytes.position(8);
+        // set directly, setContent() would copy the bytes once more
+        data.content = bytes.slice();
+        return data;
+    }
+
+    /**
+     * read a part of the content into a buffer.
+     *
+     * @param manifest
+     * @param offset
+     * @param content filled up from its position on
+     * @return false if a chunk was gone, because a newer version replaced the manifest meanwhile,
+     * or because it's missing from the store
+     * @throws IOException
+     */
+    private boolean readContent(Manifest manifest, long offset, ByteBuffer content) throws IOException {
+        int chunk = Arrays.binarySearch(manifest.offsets, offset);
+        if (chunk < 0) {
+            chunk = -chunk - 2;
+        }
+        for (; content.hasRemaining() && chunk < manifest.hashes.length; chunk++) {
+            long skip = Math.max(0, offset - manifest.offsets[chunk]);
+            try (FileChannel channel = FileChannel.open(chunkPath(manifest.hashes[chunk]))) {
+                int end = content.position() + (int) Math.min(content.remaining(), manifest.length(chunk) - skip);
+                ByteBuffer part = content.duplicate();
+                part.limit(end);
+                while (part.hasRemaining()) {
+                    if (channel.read(part, skip + part.position() - content.position()) < 0) {
+                        throw new IOException(String.format("Chunk %s is shorter than its manifest says.", manifest.hashes[chunk]));
+                    }
+                }
+                content.position(end);
+            } catch (NoSuchFileException e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public VersionedData read(String fileName) throws IOException {
+        while (true) {
+            Manifest manifest = index.get(fileName);
+            if (manifest == null) {
+                return null;
+            }
+            if (manifest.hashes.length == 0) {
+                VersionedData data = readInline(fileName);
+                if (data == null) {
+                    // the manifest file is newer than the index already, its write is about to update it
+                    continue;
+                }
+                return data;
+            }
+            if (manifest.size > Integer.MAX_VALUE) {
+                throw new IOException(String.format("%d bytes are too many to read at once.", manifest.size));
+            }
+            ByteBuffer content = ByteBuffer.allocate((int) manifest.size);
+            if (!readContent(manifest, 0, content)) {
+                checkReplaced(fileName, manifest);
+                continue;
+            }
+            content.flip();
+            VersionedData data = new VersionedData(manifest.version);
+            // set directly, setContent() would copy the bytes once more
+            data.content = content;
+            return data;
+        }
+    }
+
+    @Override
+    public ContentChunk readChunk(String fileName, long offset, int length) throws IOException {
+        while (true) {
+            Manifest manifest = index.get(fileName);
+            if (manifest == null) {
+                return null;
+            }
+            if (manifest.hashes.length == 0) {
+                VersionedData inline = readInline(fileName);
+                if (inline == null) {
+                    // the manifest file is newer than the index already, its write is about to update it
+                    continue;
+                }
+                int start = (int) ReplicaStore.rangeStart(offset, inline.content.remaining());
+                ContentChunk chunk = new ContentChunk();
+                chunk.setVersion(inline.version);
+                chunk.setSize(inline.content.remaining());
+                chunk.data = ByteBuffer.wrap(inline.content.array(), inline.content.arrayOffset() + start,
+                        Math.min(length, inline.content.remaining() - start)).slice();
+                return chunk;
+            }
+            long start = ReplicaStore.rangeStart(offset, manifest.size);
+            ByteBuffer data = ByteBuffer.allocate((int) Math.min(length, manifest.size - start));
+            if (!readContent(manifest, start, data)) {
+                checkReplaced(fileName, manifest);
+                continue;
+            }
+            data.flip();
+            ContentChunk chunk = new ContentChunk();
+            chunk.setVersion(manifest.version);
+            chunk.setSize(manifest.size);
+            // set directly, setData() would copy the bytes once more
+            chunk.data = data;
+            return chunk;
+        }
+    }
+
+    /**
+     * after a chunk of a manifest was gone: a newer manifest released it, and is worth reading
+     * instead, unless the manifest is still the current one.
+     *
+     * @param fileName
+     * @param manifest the manifest that was read
+     * @throws IOException if the manifest is still the current one, reading it again won't help
+     */
+    private void checkReplaced(String fileName, Manifest manifest) throws IOException {
+        if (index.get(fileName) == manifest) {
+            throw new IOException(String.format("Chunks of File %s Version %d are missing from this node.", fileName, manifest.version));
+        }
+    }
+
+    /**
+     * staged content is split and stored as it comes in, as long as it comes in order, so a
+     * commit only has the last few chunks left to do.
+     */
+    @Override
+    public StagedContent stage(String fileName) throws IOException {
+        return new StagedFile(tempDirectory.resolve("upload-" + tempFiles.incrementAndGet()), 0) {
+            // chunks split off so far, referenced until they are committed or thrown away
+            final List<String> hashes = new ArrayList<>();
+            final List<Integer> lengths = new ArrayList<>();
+            long splitTo = 0;
+            // end of the part written without gaps
+            long contiguous = 0;
+
+            @Override
+            public void write(long offset, ByteBuffer data) throws IOException {
+                super.write(offset, data);
+                synchronized (this) {
+                    if (offset < splitTo) {
+                        // a part that was split already got written again, start over
+                        release(hashes);
+                        hashes.clear();
+                        lengths.clear();
+                        splitTo = 0;
+                    }
+                    if (offset <= contiguous) {
+                        contiguous = Math.max(contiguous, offset + data.remaining());
+                        splitTo = splitStaged(this, splitTo, contiguous, false);
+                    }
+                }
+            }
+
+            @Override
+            public int commit(int version) throws IOException {
+                try {
+                    writeLocks.lock(fileName);
+                    try {
+                        if (version(fileName) >= version) {
+                            return version(fileName);
+                        }
+                        synchronized (this) {
+                            if (hashes.isEmpty() && size() <= chunker.minSize) {
+                                return install(fileName, new Manifest(version, hashes, lengths, (int) size()), read(0, (int) size()));
+                            }
+                            splitTo = splitStaged(this, splitTo, size(), true);
+                            // the manifest holds the references from here on
+                            List<String> committed = new ArrayList<>(hashes);
+                            hashes.clear();
+                            return install(fileName, new Manifest(version, committed, lengths, 0), null);
+                        }
+                    } finally {
+                        writeLocks.unlock(fileName);
+                    }
+                } finally {
+                    abort();
+                }
+            }
+
+            @Override
+            public void abort() {
+                super.abort();
+                synchronized (this) {
+                    release(hashes);
+                    hashes.clear();
+                }
+            }
+
+            private long splitStaged(StagedFile staged, long from, long to, boolean last) throws IOException {
+                return chunker.split(staged, from, to, last, (hash, offset, chunk) -> {
+                    hashes.add(hash);
+                    lengths.add(chunk.remaining());
+                    reference(Collections.singletonList(hash));
+                    storeChunk(hash, chunk);
+                });
+            }
+        };
+    }
+
+    @Override
+    public StagedContent spool(String fileName) throws IOException {
+        return new StagedFile(tempDirectory.resolve("upload-" + tempFiles.incrementAndGet()), 0) {
+            @Override
+            public int commit(int version) throws IOException {
+                abort();
+                throw new IOException(String.format("Content spooled for File %s can't be committed.", fileName));
+            }
+        };
+    }
+
+    private void collectLoop() {
+        while (true) {
+            try {
+                Thread.sleep(gcDelay);
+                long collected = collect(gcDelay);
+                if (collected > 0) {
+                    System.out.printf("Collected %d unreferenced chunks.\n", collected);
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException e) {
+                System.out.println("Error collecting chunks.");
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * delete the chunks nobody refers to, and count the ones that stay.
+     *
+     * @param minAge ms, younger chunks are kept, a manifest may be about to refer to them
+     * @return how many were deleted
+     * @throws IOException
+     */
+    private long collect(long minAge) throws IOException {
+        long now = System.currentTimeMillis();
+        long collected = 0;
+        long chunks = 0;
+        long bytes = 0;
+        try (DirectoryStream<Path> prefixes = Files.newDirectoryStream(chunkDirectory)) {
+            for (Path prefix : prefixes) {
+                try (DirectoryStream<Path> files = Files.newDirectoryStream(prefix)) {
+                    for (Path file : files) {
+                        String hash = file.getFileName().toString();
+                        long size;
+                        long modified;
+                        try {
+                            size = Files.size(file);
+                            modified = Files.getLastModifiedTime(file).toMillis();
+                        } catch (NoSuchFileException e) {
+                            continue;
+                        }
+                        synchronized (references) {
+                            if (!references.containsKey(hash) && now - modified >= minAge) {
+                                deleteChunk(hash);
+                                collected++;
+                                continue;
+                            }
+                        }
+                        chunks++;
+                        bytes += size;
+                    }
+                }
+            }
+        }
+        // recount now and then, so the numbers don't drift with chunks written twice at once
+        storedChunks.set(chunks);
+        storedBytes.set(bytes);
+        return collected;
+    }
+
+    @Override
+    public int version(String fileName) {
+        Manifest manifest = index.get(fileName);
+        return manifest != null ? manifest.version : 0;
+    }
+
+    @Override
+    public Map<String, Integer> page(String startAfter, int maxEntries) {
+        Map<String, Integer> page = new HashMap<>();
+        for (Map.Entry<String, Manifest> entry : index.tailMap(startAfter, false).entrySet()) {
+            if (page.size() >= maxEntries) {
+                break;
+            }
+            page.put(entry.getKey(), entry.getValue().version);
+        }
+        return page;
+    }
+
+    @Override
+    public Iterable<String> names() {
+        return new ArrayList<>(index.keySet());
+    }
+
+    @Override
+    public String location(String fileName) {
+        Manifest manifest = index.get(fileName);
+        return manifest != null
+                ? String.format("%s (%d chunks)", manifestDirectory.resolve(fileName), manifest.hashes.length)
+                : "none";
+    }
+
+    @Override
+    public String stats() {
+        long stored = storedBytes.get();
+        long logical = logicalBytes.get();
+        return String.format("store: engine=chunk files=%d chunks=%d storedKB=%d inlineKB=%d logicalKB=%d dedupRatio=%.2f "
+                        + "chunksWritten=%d chunksShared=%d chunksCollected=%d",
+                index.size(), storedChunks.get(), stored / 1024, inlineBytes.get() / 1024, logical / 1024,
+                stored == 0 ? 1.0 : (double) (logical - inlineBytes.get()) / stored,
+                writtenChunks.get(), sharedChunks.get(), collectedChunks.get());
+    }
+}
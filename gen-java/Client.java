@@ -1,27 +1,34 @@
 import org.apache.thrift.TException;
-import org.apache.thrift.protocol.TBinaryProtocol;
-import org.apache.thrift.protocol.TProtocol;
-import org.apache.thrift.transport.TSocket;
 import org.apache.thrift.transport.TTransport;
 
 import java.io.Console;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class Client {
     enum Option {
-        read, write, ls, simRead, simWrite, exit
+        read, range, write, append, patch, upload, download, ls, stats, simRead, simWrite, exit
     }
 
     private static Properties prop;
     private static List<NodeHandler.Node> nodes;
+    private static LinkConfig linkConfig;
 
     public static void main(String[] args) {
         try {
@@ -30,24 +37,34 @@ public class Client {
             InputStream is = new FileInputStream("simpledfs.cfg");
             prop.load(is);
 
-            // get all nodes info
-            String[] addresses = prop.getProperty("node.addresses").split("\\s*,\\s*");
-            String[] ports = prop.getProperty("node.ports").split("\\s*,\\s*");
-
-            int nodesCount = Integer.parseInt(prop.getProperty("nodes.count"));
-            int readQuorum = Integer.parseInt(prop.getProperty("quorum.read"));
-            int writeQuorum = Integer.parseInt(prop.getProperty("quorum.write"));
-
-            // check quorum conditions
-            assert readQuorum + writeQuorum > nodesCount;
-            assert writeQuorum > nodesCount/2;
-
-            assert addresses.length == nodesCount;
-            assert ports.length == nodesCount;
+            // get all nodes info, checking the quorum conditions
+            try {
+                nodes = new QuorumConfig(prop).nodes;
+            } catch (IllegalArgumentException e) {
+                System.out.println(e.getMessage());
+                return;
+            }
+            linkConfig = new LinkConfig(prop, "client");
 
-            nodes = new ArrayList<>();
-            for (int i = 0; i < nodesCount; i++) {
-                nodes.add(new NodeHandler.Node(addresses[i], Integer.parseInt(ports[i])));
+            if (args.length > 0 && args[0].equals("load")) {
+                // non-interactive load test: load <threads> <seconds> [read|write|mixed|append]
+                loadTest(Integer.parseInt(args[1]), Integer.parseInt(args[2]), args.length > 3 ? args[3] : "mixed", linkConfig);
+                return;
+            }
+            if (args.length > 0 && args[0].equals("bench")) {
+                // protocol benchmark: bench <threads> <seconds> [read|write|mixed]
+                protocolBenchmark(Integer.parseInt(args[1]), Integer.parseInt(args[2]), args.length > 3 ? args[3] : "mixed");
+                return;
+            }
+            if (args.length > 0 && args[0].equals("compress")) {
+                // compression benchmark, no nodes needed: compress <seconds> [local files]
+                compressionBenchmark(Integer.parseInt(args[1]), Arrays.copyOfRange(args, 2, args.length));
+                return;
+            }
+            if (args.length > 0 && args[0].equals("stats")) {
+                // peer scores as seen by one node: stats <node number>
+                stats(nodes.get(Integer.parseInt(args[1])));
+                return;
             }
 
             Console console = System.console();
@@ -56,7 +73,7 @@ public class Client {
             while (option != Option.exit) {
                 // UI Menu Loop
                 try {
-                    option = Option.valueOf(console.readLine("CHOOSE> read, write, ls, simRead, simWrite, exit\n> "));
+                    option = Option.valueOf(console.readLine("CHOOSE> read, range, write, append, patch, upload, download, ls, stats, simRead, simWrite, exit\n> "));
                 } catch (IllegalArgumentException e){
                     console.printf("Bad Option, try again!\n");
                     continue;
@@ -67,15 +84,44 @@ public class Client {
                         node = getRandomNode();
                         read(fileName, node);
                         break;
+                    case range:
+                        String[] rangeArgs = console.readLine("Enter File Name, Offset (negative from the end), Length: ").split("\\s*,\\s*");
+                        node = getRandomNode();
+                        readRange(rangeArgs[0], Long.parseLong(rangeArgs[1]), Integer.parseInt(rangeArgs[2]), node);
+                        break;
                     case write:
                         String[] fileNameContents = console.readLine("Enter File Name, Contents: ").split("\\s*,\\s*");
                         node = getRandomNode();
                         write(fileNameContents[0], fileNameContents[1], node);
                         break;
+                    case append:
+                        String[] fileNameLine = console.readLine("Enter File Name, Line: ").split("\\s*,\\s*", 2);
+                        node = getRandomNode();
+                        append(fileNameLine[0], fileNameLine[1] + "\n", node);
+                        break;
+                    case patch:
+                        String[] patchArgs = console.readLine("Enter File Name, Base Version, Offset, Contents: ").split("\\s*,\\s*", 4);
+                        node = getRandomNode();
+                        patch(patchArgs[0], Integer.parseInt(patchArgs[1]), Long.parseLong(patchArgs[2]), patchArgs[3], node);
+                        break;
+                    case upload:
+                        String[] uploadNames = console.readLine("Enter File Name, Local File: ").split("\\s*,\\s*");
+                        node = getRandomNode();
+                        upload(uploadNames[0], Paths.get(uploadNames[1]), node);
+                        break;
+                    case download:
+                        String[] downloadNames = console.readLine("Enter File Name, Local File: ").split("\\s*,\\s*");
+                        node = getRandomNode();
+                        download(downloadNames[0], Paths.get(downloadNames[1]), node);
+                        break;
                     case ls:
                         node = getRandomNode();
                         ls(node);
                         break;
+                    case stats:
+                        int nodeIndex = Integer.parseInt(console.readLine("Enter Node Number: "));
+                        stats(nodes.get(nodeIndex));
+                        break;
                     case simRead:
                         simRead();
                         break;
@@ -93,10 +139,8 @@ public class Client {
         try {
             // create client connection
             System.out.printf("read(%s) -> %s:%d\n", fileName, node.address, node.port);
-            TTransport transport = new TSocket(node.address, node.port);
-            transport.open();
-            TProtocol protocol = new TBinaryProtocol(transport);
-            NodeService.Client client = new NodeService.Client(protocol);
+            TTransport transport = linkConfig.open(node);
+            NodeService.Client client = new NodeService.Client(linkConfig.protocol(transport));
             Instant start = Instant.now();
             String contents = client.read(fileName);
             Instant end = Instant.now();
@@ -113,14 +157,35 @@ public class Client {
         return 0;
     }
 
+    private static int readRange(String fileName, long offset, int length, NodeHandler.Node node) {
+        try {
+            // only the asked for part is sent, e.g. the tail of a large file
+            System.out.printf("readRange(%s, %d, %d) -> %s:%d\n", fileName, offset, length, node.address, node.port);
+            TTransport transport = linkConfig.open(node);
+            NodeService.Client client = new NodeService.Client(linkConfig.protocol(transport));
+            Instant start = Instant.now();
+            ContentChunk range = client.readRange(fileName, offset, length);
+            Instant end = Instant.now();
+            int time = (int)Duration.between(start, end).toMillis();
+            long from = offset < 0 ? Math.max(0, range.size + offset) : Math.min(offset, range.size);
+            System.out.printf("readRange(%s) completed in %d ms, bytes %d to %d of %d, Version %d!\n=== CONTENT BEGINS ===\n%s\n=== CONTENT ENDS ===\n",
+                    fileName, time, from, from + range.data.remaining(), range.size, range.version, TextContent.decode(range.data));
+            transport.close();
+            return time;
+        } catch (DFSError e) {
+            System.out.println(e.toString());
+        } catch (TException e) {
+            e.printStackTrace();
+        }
+        return 0;
+    }
+
     private static int write(String fileName, String contents, NodeHandler.Node node) {
         try {
             // create client connection
             System.out.printf("write(%s) -> %s:%d\n", fileName, node.address, node.port);
-            TTransport transport = new TSocket(node.address, node.port);
-            transport.open();
-            TProtocol protocol = new TBinaryProtocol(transport);
-            NodeService.Client client = new NodeService.Client(protocol);
+            TTransport transport = linkConfig.open(node);
+            NodeService.Client client = new NodeService.Client(linkConfig.protocol(transport));
             Instant start = Instant.now();
             boolean result = client.write(fileName, contents);
             Instant end = Instant.now();
@@ -139,14 +204,133 @@ public class Client {
         return 0;
     }
 
+    private static int append(String fileName, String line, NodeHandler.Node node) {
+        try {
+            // only the new line is sent, not the whole file
+            System.out.printf("append(%s) -> %s:%d\n", fileName, node.address, node.port);
+            TTransport transport = linkConfig.open(node);
+            NodeService.Client client = new NodeService.Client(linkConfig.protocol(transport));
+            Instant start = Instant.now();
+            int version = client.append(fileName, TextContent.encode(line));
+            Instant end = Instant.now();
+            int time = (int)Duration.between(start, end).toMillis();
+            System.out.printf("append(%s) completed in %d ms, now Version %d!\n", fileName, time, version);
+            transport.close();
+            return time;
+        } catch (DFSError e) {
+            System.out.println(e.toString());
+        } catch (TException e) {
+            e.printStackTrace();
+        }
+        return 0;
+    }
+
+    private static int patch(String fileName, int baseVersion, long offset, String contents, NodeHandler.Node node) {
+        try {
+            // create client connection
+            System.out.printf("patch(%s, Version %d, offset %d) -> %s:%d\n", fileName, baseVersion, offset, node.address, node.port);
+            TTransport transport = linkConfig.open(node);
+            NodeService.Client client = new NodeService.Client(linkConfig.protocol(transport));
+            Instant start = Instant.now();
+            int version = client.patch(fileName, baseVersion, offset, TextContent.encode(contents));
+            Instant end = Instant.now();
+            int time = (int)Duration.between(start, end).toMillis();
+            System.out.printf("patch(%s) completed in %d ms, now Version %d!\n", fileName, time, version);
+            transport.close();
+            return time;
+        } catch (DFSError e) {
+            System.out.println(e.toString());
+        } catch (TException e) {
+            e.printStackTrace();
+        }
+        return 0;
+    }
+
+    /**
+     * write a local file to the DFS as it is, byte for byte, a chunk at a time. the file only
+     * shows up on the DFS once all of it is there.
+     *
+     * @param fileName
+     * @param localFile
+     * @param node
+     */
+    private static void upload(String fileName, Path localFile, NodeHandler.Node node) {
+        int chunkSize = Integer.parseInt(prop.getProperty("chunk.size", "1048576"));
+        try (FileChannel contents = FileChannel.open(localFile)) {
+            System.out.printf("upload(%s, %d bytes) -> %s:%d\n", fileName, contents.size(), node.address, node.port);
+            TTransport transport = linkConfig.open(node);
+            NodeService.Client client = new NodeService.Client(linkConfig.protocol(transport));
+            Instant start = Instant.now();
+            String uploadId = client.openUpload(fileName);
+            ByteBuffer chunk = ByteBuffer.allocate(chunkSize);
+            for (long offset = 0; offset < contents.size(); offset += chunk.limit()) {
+                chunk.clear();
+                // fill the chunk, unless the file ends first
+                int read = 0;
+                while (chunk.hasRemaining() && read >= 0) {
+                    read = contents.read(chunk, offset + chunk.position());
+                }
+                chunk.flip();
+                client.writeChunk(fileName, uploadId, offset, chunk);
+            }
+            boolean result = client.commitUpload(fileName, uploadId);
+            int time = (int) Duration.between(start, Instant.now()).toMillis();
+            if (result) {
+                System.out.printf("File %s not found on DFS so created with Version 1.\n", fileName);
+            }
+            System.out.printf("upload(%s) completed in %d ms!\n", fileName, time);
+            transport.close();
+        } catch (DFSError e) {
+            System.out.println(e.toString());
+        } catch (TException | IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * save a DFS file to a local file, byte for byte, a chunk at a time. every chunk comes from
+     * the same version, the download fails if the file changes in the middle of it.
+     *
+     * @param fileName
+     * @param localFile
+     * @param node
+     */
+    private static void download(String fileName, Path localFile, NodeHandler.Node node) {
+        int chunkSize = Integer.parseInt(prop.getProperty("chunk.size", "1048576"));
+        try (FileChannel contents = FileChannel.open(localFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            System.out.printf("download(%s) -> %s:%d\n", fileName, node.address, node.port);
+            TTransport transport = linkConfig.open(node);
+            NodeService.Client client = new NodeService.Client(linkConfig.protocol(transport));
+            Instant start = Instant.now();
+            int version = 0;
+            long offset = 0;
+            long size;
+            do {
+                ContentChunk chunk = client.readChunk(fileName, version, offset, chunkSize);
+                version = chunk.version;
+                size = chunk.size;
+                while (chunk.data.hasRemaining()) {
+                    offset += contents.write(chunk.data, offset);
+                }
+            } while (offset < size);
+            int time = (int) Duration.between(start, Instant.now()).toMillis();
+            System.out.printf("download(%s) completed in %d ms, Version %d, %d bytes saved to %s!\n",
+                    fileName, time, version, size, localFile);
+            transport.close();
+        } catch (DFSError e) {
+            System.out.println(e.toString());
+        } catch (TException | IOException e) {
+            e.printStackTrace();
+        }
+    }
+
     private static void ls(NodeHandler.Node node) {
         try {
             // create client connection
             System.out.printf("ls() -> %s:%d\n", node.address, node.port);
-            TTransport transport = new TSocket(node.address, node.port);
-            transport.open();
-            TProtocol protocol = new TBinaryProtocol(transport);
-            NodeService.Client client = new NodeService.Client(protocol);
+            TTransport transport = linkConfig.open(node);
+            NodeService.Client client = new NodeService.Client(linkConfig.protocol(transport));
             Map<String, Integer> lsResult = client.ls();
             System.out.printf("ls() successful!\n%20s\t\tVersion\n", "FileName");
             for (Map.Entry<String, Integer> lsRecord : lsResult.entrySet()) {
@@ -160,6 +344,32 @@ public class Client {
         }
     }
 
+    private static void stats(NodeHandler.Node node) {
+        try {
+            // create client connection
+            System.out.printf("peerScores() -> %s:%d\n", node.address, node.port);
+            TTransport transport = linkConfig.open(node);
+            NodeService.Client client = new NodeService.Client(linkConfig.protocol(transport));
+            List<PeerScore> peerScores = client.peerScores();
+            System.out.printf("%30s\t%10s\t%10s\t%10s\t%10s\n", "Node", "Latency", "ErrorRate", "Calls", "Errors");
+            for (PeerScore score : peerScores) {
+                System.out.printf("%30s\t%8.2fms\t%9.1f%%\t%10d\t%10d\n", score.address + ":" + score.port,
+                        score.latencyMs, 100 * score.errorRate, score.samples, score.errors);
+            }
+            try {
+                QuorumState quorumState = client.quorumState();
+                System.out.printf("Quorums: read %d, write %d of %d votes, %d switches, reads %s\n",
+                        quorumState.readVotes, quorumState.writeVotes, quorumState.totalVotes, quorumState.switches,
+                        quorumState.readFraction < 0 ? "unknown" : String.format("%.0f%%", 100 * quorumState.readFraction));
+            } catch (DFSError e) {
+                System.out.println(e.msg);
+            }
+            transport.close();
+        } catch (TException e) {
+            e.printStackTrace();
+        }
+    }
+
     private static NodeHandler.Node getRandomNode() {
         Random random = new Random();
         int nodeIndex = random.nextInt(nodes.size());
@@ -216,4 +426,209 @@ public class Client {
             e.printStackTrace();
         }
     }
+
+    /**
+     * hammer random nodes from several threads, each thread keeping one connection per node,
+     * and report throughput and latency.
+     *
+     * @param threads
+     * @param seconds
+     * @param mode read, write, mixed or append, which adds a line to a file instead of writing it
+     * @param linkConfig how to connect to the nodes
+     * @return number of requests answered, including DFS errors
+     */
+    private static long loadTest(int threads, int seconds, String mode, LinkConfig linkConfig) throws Exception {
+        List<String> fnList = Files.readAllLines(Paths.get(prop.getProperty("client.filenamesListFile")));
+        List<String> contentsList = Files.readAllLines(Paths.get(prop.getProperty("client.contentsListFile")));
+        // go through the raw bytes services instead of the string ones
+        boolean binary = Boolean.parseBoolean(prop.getProperty("client.binary", "false"));
+        List<ByteBuffer> contentsBytes = new ArrayList<>();
+        List<ByteBuffer> appendLines = new ArrayList<>();
+        for (String contents : contentsList) {
+            contentsBytes.add(TextContent.encode(contents));
+            appendLines.add(TextContent.encode(contents + "\n"));
+        }
+        AtomicLong ops = new AtomicLong();
+        AtomicLong dfsErrors = new AtomicLong();
+        AtomicLong failures = new AtomicLong();
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        long end = System.currentTimeMillis() + seconds * 1000L;
+        System.out.printf("Load test: %d threads, %d s, %s, server.type=%s, link=%s, binary=%b\n",
+                threads, seconds, mode, linkConfig.serverType, linkConfig.describe(), binary);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            futures.add(executor.submit(() -> {
+                Random random = new Random();
+                Map<NodeHandler.Node, NodeService.Client> clients = new HashMap<>();
+                List<TTransport> transports = new ArrayList<>();
+                List<Long> threadLatencies = new ArrayList<>();
+                try {
+                    while (System.currentTimeMillis() < end) {
+                        NodeHandler.Node node = getRandomNode();
+                        String fileName = fnList.get(random.nextInt(fnList.size()));
+                        boolean isWrite = mode.equals("write") || (mode.equals("mixed") && random.nextBoolean());
+                        long start = System.nanoTime();
+                        try {
+                            NodeService.Client client = clients.get(node);
+                            if (client == null) {
+                                TTransport transport = linkConfig.open(node);
+                                transports.add(transport);
+                                client = new NodeService.Client(linkConfig.protocol(transport));
+                                clients.put(node, client);
+                            }
+                            int contents = random.nextInt(contentsList.size());
+                            if (mode.equals("append")) {
+                                client.append(fileName, appendLines.get(contents));
+                            } else if (isWrite && binary) {
+                                client.writeBytes(fileName, contentsBytes.get(contents));
+                            } else if (isWrite) {
+                                client.write(fileName, contentsList.get(contents));
+                            } else if (binary) {
+                                client.readBytes(fileName);
+                            } else {
+                                client.read(fileName);
+                            }
+                            threadLatencies.add(System.nanoTime() - start);
+                            ops.incrementAndGet();
+                        } catch (DFSError e) {
+                            // e.g. reading a file that was never written
+                            dfsErrors.incrementAndGet();
+                        } catch (TException e) {
+                            // connection is broken, open a new one next time
+                            failures.incrementAndGet();
+                            clients.remove(node);
+                        }
+                    }
+                } finally {
+                    for (TTransport transport : transports) {
+                        transport.close();
+                    }
+                    latencies.addAll(threadLatencies);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        Collections.sort(latencies);
+        double avg = latencies.stream().mapToLong(Long::longValue).average().orElse(0) / 1e6;
+        double p99 = latencies.isEmpty() ? 0 : latencies.get((int) (latencies.size() * 0.99)) / 1e6;
+        System.out.printf("ops=%d dfsErrors=%d failures=%d throughput=%.1f ops/s avg=%.2f ms p99=%.2f ms\n",
+                ops.get(), dfsErrors.get(), failures.get(), (double) ops.get() / seconds, avg, p99);
+        return ops.get() + dfsErrors.get();
+    }
+
+    /**
+     * run the load test once for every client link protocol and transport, and report how many
+     * bytes each request took on the wire. node to node links stay as configured.
+     *
+     * @param threads
+     * @param seconds per combination
+     * @param mode read, write or mixed
+     */
+    private static void protocolBenchmark(int threads, int seconds, String mode) throws Exception {
+        List<String> results = new ArrayList<>();
+        for (String protocol : new String[]{"binary", "compact"}) {
+            for (String framed : new String[]{"false", "true"}) {
+                Properties linkProp = new Properties();
+                linkProp.putAll(prop);
+                linkProp.setProperty("link.client.protocol", protocol);
+                linkProp.setProperty("link.client.framed", framed);
+                LinkConfig benchConfig = new LinkConfig(linkProp, "client");
+                if (benchConfig.framed != Boolean.parseBoolean(framed)) {
+                    // the server can't take this one
+                    continue;
+                }
+                long requests = loadTest(threads, seconds, mode, benchConfig);
+                long bytes = benchConfig.bytesSent.get() + benchConfig.bytesReceived.get();
+                results.add(String.format("%20s\t%10.1f\t%10.1f", benchConfig.describe(),
+                        (double) requests / seconds, requests == 0 ? 0.0 : (double) bytes / requests));
+            }
+        }
+        System.out.printf("%20s\t%10s\t%10s\n", "Link", "ops/s", "bytes/op");
+        for (String result : results) {
+            System.out.println(result);
+        }
+    }
+
+    /**
+     * compress the same content with every codec the nodes can use, the way a coordinator does,
+     * and report the bytes saved against the cpu time spent compressing and decompressing. files
+     * are cut into chunk.size pieces, larger content isn't compressed.
+     *
+     * @param seconds per codec, half compressing and half decompressing
+     * @param files local files, the client contents list if none
+     */
+    private static void compressionBenchmark(int seconds, String[] files) throws Exception {
+        int chunkSize = Integer.parseInt(prop.getProperty("chunk.size", "1048576"));
+        List<ByteBuffer> samples = new ArrayList<>();
+        long rawBytes = 0;
+        for (String file : files.length > 0 ? files : new String[]{prop.getProperty("client.contentsListFile")}) {
+            byte[] bytes = Files.readAllBytes(Paths.get(file));
+            for (int offset = 0; offset < bytes.length; offset += chunkSize) {
+                samples.add(ByteBuffer.wrap(bytes, offset, Math.min(chunkSize, bytes.length - offset)).slice());
+            }
+            rawBytes += bytes.length;
+        }
+        System.out.printf("Compression benchmark: %d pieces, %d KB, %d s per codec\n", samples.size(), rawBytes / 1024, seconds);
+        ThreadMXBean cpu = ManagementFactory.getThreadMXBean();
+        List<String> results = new ArrayList<>();
+        for (String name : new String[]{"lz4", "deflate"}) {
+            Properties codecProp = new Properties();
+            codecProp.putAll(prop);
+            codecProp.setProperty("compression.codec", name);
+            ContentCodec codec = new ContentCodec(codecProp, chunkSize);
+            List<ByteBuffer> stored = new ArrayList<>();
+            long storedBytes = 0;
+            int compressed = 0;
+            for (ByteBuffer sample : samples) {
+                ByteBuffer encoded = codec.encode(sample);
+                if (!codec.decode(encoded).equals(sample)) {
+                    throw new IllegalStateException(String.format("%s didn't decompress to what it compressed.", name));
+                }
+                stored.add(encoded);
+                storedBytes += encoded.remaining();
+                compressed += ContentCodec.isEncoded(encoded) ? 1 : 0;
+            }
+            // repeat for half the time each, on cpu time so other load on the machine doesn't count
+            long encodedBytes = 0;
+            long start = cpu.getCurrentThreadCpuTime();
+            long end = System.nanoTime() + seconds * 500_000_000L;
+            while (System.nanoTime() < end) {
+                for (ByteBuffer sample : samples) {
+                    codec.encode(sample);
+                    encodedBytes += sample.remaining();
+                }
+            }
+            long encodeNanos = cpu.getCurrentThreadCpuTime() - start;
+            long decodedBytes = 0;
+            start = cpu.getCurrentThreadCpuTime();
+            end = System.nanoTime() + seconds * 500_000_000L;
+            while (System.nanoTime() < end) {
+                for (ByteBuffer content : stored) {
+                    decodedBytes += codec.decode(content).remaining();
+                }
+            }
+            long decodeNanos = cpu.getCurrentThreadCpuTime() - start;
+            // cpu time a write and a read of the content cost, per MB they didn't have to send or store
+            double encodeMBs = encodedBytes / 1048576.0 / (encodeNanos / 1e9);
+            double decodeMBs = decodedBytes / 1048576.0 / (decodeNanos / 1e9);
+            double savedMB = (rawBytes - storedBytes) / 1048576.0;
+            double cpuMs = 1000.0 * rawBytes / 1048576.0 * (1 / encodeMBs + 1 / decodeMBs);
+            // content that stayed as it was costs nothing to read
+            results.add(String.format("%10s\t%10.2f\t%9.1f%%\t%10.1f\t%10s\t%12s", name,
+                    (double) rawBytes / storedBytes, 100.0 * (rawBytes - storedBytes) / rawBytes, encodeMBs,
+                    compressed > 0 ? String.format("%.1f", decodeMBs) : "-",
+                    savedMB > 0 ? String.format("%.1f", cpuMs / savedMB) : "-"));
+        }
+        System.out.printf("%10s\t%10s\t%10s\t%10s\t%10s\t%12s\n", "Codec", "ratio", "saved", "comp MB/s", "decomp MB/s", "cpu ms/MB");
+        for (String result : results) {
+            System.out.println(result);
+        }
+    }
 }
@@ -0,0 +1,339 @@
+import org.apache.thrift.TApplicationException;
+import org.apache.thrift.TException;
+import org.apache.thrift.transport.TSocket;
+import org.apache.thrift.transport.TTransport;
+import org.apache.thrift.transport.TTransportException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded pool of reusable Thrift connections to the other DFS nodes, kept per peer.
+ * Connections are checked before reuse, evicted when idle for too long and re-opened
+ * if a reused one turns out to be broken.
+ */
+public class ConnectionPool {
+    private final int maxPerPeer;
+    private final long idleTimeout;
+    private final long validateAfter;
+    private final long waitTimeout;
+    private final LinkConfig linkConfig;
+    private final Map<NodeHandler.Node, PeerPool> peerPools = new ConcurrentHashMap<>();
+
+    // metrics
+    final AtomicLong hits = new AtomicLong();
+    final AtomicLong misses = new AtomicLong();
+    final AtomicLong waits = new AtomicLong();
+    final AtomicLong waitTimeMillis = new AtomicLong();
+    final AtomicLong evictions = new AtomicLong();
+    final AtomicLong failures = new AtomicLong();
+
+    /**
+     * a single remote call made on a borrowed client.
+     */
+    interface PeerCall<T> {
+        T call(NodeService.Client client) throws TException;
+    }
+
+    static class Connection {
+        final TSocket socket;
+        final TTransport transport;
+        final NodeService.Client client;
+        long lastUsed;
+        // whether this connection was taken from the idle list rather than freshly opened
+        boolean reused;
+
+        Connection(TSocket socket, TTransport transport, NodeService.Client client) {
+            this.socket = socket;
+            this.transport = transport;
+            this.client = client;
+            this.lastUsed = System.currentTimeMillis();
+        }
+    }
+
+    private class PeerPool {
+        final NodeHandler.Node node;
+        final Deque<Connection> idle = new ArrayDeque<>();
+        // borrowed + idle connections to this peer
+        int open = 0;
+        // a lock rather than synchronized, so waiting virtual threads don't pin their carrier
+        final ReentrantLock lock = new ReentrantLock();
+        final Condition returned = lock.newCondition();
+
+        PeerPool(NodeHandler.Node node) {
+            this.node = node;
+        }
+
+        Connection borrow() throws TTransportException {
+            lock.lock();
+            try {
+                long deadline = System.currentTimeMillis() + waitTimeout;
+                boolean waited = false;
+                while (idle.isEmpty() && open >= maxPerPeer) {
+                    // pool is at capacity, wait for a connection to be returned
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        throw new TTransportException(TTransportException.TIMED_OUT,
+                                String.format("Connection Pool to %s:%d exhausted.", node.address, node.port));
+                    }
+                    if (!waited) {
+                        waits.incrementAndGet();
+                        waited = true;
+                    }
+                    long start = System.currentTimeMillis();
+                    try {
+                        returned.await(remaining, TimeUnit.MILLISECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new TTransportException(TTransportException.UNKNOWN, "Interrupted waiting for a connection.");
+                    } finally {
+                        waitTimeMillis.addAndGet(System.currentTimeMillis() - start);
+                    }
+                }
+                while (!idle.isEmpty()) {
+                    // most recently used first, it's the least likely to have gone stale
+                    Connection connection = idle.pollFirst();
+                    if (isHealthy(connection)) {
+                        hits.incrementAndGet();
+                        connection.reused = true;
+                        return connection;
+                    }
+                    close(connection);
+                    open--;
+                }
+                misses.incrementAndGet();
+                open++;
+            } finally {
+                lock.unlock();
+            }
+            // connect outside the lock, a slow connect shouldn't hold up the others
+            try {
+                return connect(node);
+            } catch (TTransportException e) {
+                lock.lock();
+                try {
+                    open--;
+                    returned.signal();
+                } finally {
+                    lock.unlock();
+                }
+                throw e;
+            }
+        }
+
+        void giveBack(Connection connection) {
+            lock.lock();
+            try {
+                connection.lastUsed = System.currentTimeMillis();
+                idle.offerFirst(connection);
+                returned.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void discard(Connection connection) {
+            close(connection);
+            lock.lock();
+            try {
+                open--;
+                returned.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void discardIdle() {
+            lock.lock();
+            try {
+                while (!idle.isEmpty()) {
+                    close(idle.pollFirst());
+                    open--;
+                }
+                returned.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void evictIdle(long now) {
+            lock.lock();
+            try {
+                Iterator<Connection> iterator = idle.descendingIterator();
+                while (iterator.hasNext()) {
+                    Connection connection = iterator.next();
+                    if (now - connection.lastUsed < idleTimeout) {
+                        // the rest were used more recently
+                        break;
+                    }
+                    iterator.remove();
+                    close(connection);
+                    open--;
+                    evictions.incrementAndGet();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    ConnectionPool(Properties prop) {
+        maxPerPeer = Integer.parseInt(prop.getProperty("pool.maxperpeer", "8"));
+        idleTimeout = Long.parseLong(prop.getProperty("pool.idletimeout", "60000"));
+        validateAfter = Long.parseLong(prop.getProperty("pool.validateafter", "5000"));
+        waitTimeout = Long.parseLong(prop.getProperty("pool.waittimeout", "5000"));
+        linkConfig = new LinkConfig(prop, "peer");
+
+        // evict idle connections in the background
+        Thread evictor = new Thread(this::evictIdle);
+        evictor.setDaemon(true);
+        evictor.start();
+    }
+
+    /**
+     * run a call against the given peer on a pooled connection. a reused connection that
+     * fails at the transport level is thrown away and the call is retried on a fresh one, so
+     * the call may reach the peer twice. only for calls that do no harm then: reads, and
+     * replica updates guarded by a version.
+     *
+     * @param node
+     * @param call
+     * @return
+     * @throws TException
+     */
+    <T> T call(NodeHandler.Node node, PeerCall<T> call) throws TException {
+        return call(node, call, true);
+    }
+
+    /**
+     * run a call against the given peer on a pooled connection, never more than once. for calls
+     * that would be applied twice if the first request got through before the connection broke,
+     * like writes and appends to a coordinator.
+     *
+     * @param node
+     * @param call
+     * @return
+     * @throws TException
+     */
+    <T> T callOnce(NodeHandler.Node node, PeerCall<T> call) throws TException {
+        return call(node, call, false);
+    }
+
+    private <T> T call(NodeHandler.Node node, PeerCall<T> call, boolean retry) throws TException {
+        PeerPool peerPool = peerPools.computeIfAbsent(node, PeerPool::new);
+        while (true) {
+            Connection connection = peerPool.borrow();
+            try {
+                T result = call.call(connection.client);
+                peerPool.giveBack(connection);
+                return result;
+            } catch (DFSError | TApplicationException e) {
+                // a complete reply was read, so the connection is still usable
+                peerPool.giveBack(connection);
+                throw e;
+            } catch (TException | RuntimeException e) {
+                failures.incrementAndGet();
+                peerPool.discard(connection);
+                if (Thread.currentThread().isInterrupted()) {
+                    // the call was cancelled and the interrupt closed its socket, the peer is fine
+                    throw e;
+                }
+                if (!(e instanceof TTransportException) || !connection.reused) {
+                    throw e;
+                }
+                // the peer has probably restarted, none of its idle connections can be trusted
+                peerPool.discardIdle();
+                if (!retry) {
+                    throw e;
+                }
+                System.out.printf("Stale connection to %s:%d, reconnecting.\n", node.address, node.port);
+            }
+        }
+    }
+
+    String stats() {
+        int open = 0;
+        int idle = 0;
+        for (PeerPool peerPool : peerPools.values()) {
+            peerPool.lock.lock();
+            try {
+                open += peerPool.open;
+                idle += peerPool.idle.size();
+            } finally {
+                peerPool.lock.unlock();
+            }
+        }
+        long lookups = hits.get() + misses.get();
+        return String.format("pool: open=%d idle=%d hits=%d misses=%d hitRate=%.1f%% waits=%d waitTime=%dms evictions=%d failures=%d "
+                        + "link=%s bytesSent=%d bytesReceived=%d",
+                open, idle, hits.get(), misses.get(), lookups == 0 ? 0.0 : 100.0 * hits.get() / lookups,
+                waits.get(), waitTimeMillis.get(), evictions.get(), failures.get(),
+                linkConfig.describe(), linkConfig.bytesSent.get(), linkConfig.bytesReceived.get());
+    }
+
+    private Connection connect(NodeHandler.Node node) throws TTransportException {
+        TSocket socket = new TSocket(node.address, node.port);
+        TTransport transport = linkConfig.open(socket);
+        return new Connection(socket, transport, new NodeService.Client(linkConfig.protocol(transport)));
+    }
+
+    private boolean isHealthy(Connection connection) {
+        if (!connection.transport.isOpen()) {
+            return false;
+        }
+        if (System.currentTimeMillis() - connection.lastUsed < validateAfter) {
+            return true;
+        }
+        // idle for a while - make sure the peer hasn't closed its end in the meantime
+        Socket socket = connection.socket.getSocket();
+        if (socket.isClosed() || socket.isInputShutdown()) {
+            return false;
+        }
+        try {
+            int timeout = socket.getSoTimeout();
+            socket.setSoTimeout(1);
+            try {
+                InputStream in = socket.getInputStream();
+                // an idle connection must have nothing to read, EOF or stray bytes both mean it's unusable
+                in.read();
+                return false;
+            } catch (SocketTimeoutException e) {
+                return true;
+            } finally {
+                socket.setSoTimeout(timeout);
+            }
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void close(Connection connection) {
+        connection.transport.close();
+    }
+
+    private void evictIdle() {
+        while (true) {
+            try {
+                Thread.sleep(Math.max(idleTimeout / 2, 1000));
+                long now = System.currentTimeMillis();
+                for (PeerPool peerPool : peerPools.values()) {
+                    peerPool.evictIdle(now);
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,193 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Splits content into chunks at points picked by the content itself, with a rolling gear hash,
+ * so inserting or removing a few bytes only changes the chunks around the edit and the rest
+ * still line up with the chunks of the old content. Chunks are named by the sha-256 of their bytes.
+ * Every node has to split the same way for chunks to be shared, so the sizes come from the config.
+ */
+public class ContentChunker {
+    // one random value per byte, the same on every node
+    private static final long[] GEAR = new long[256];
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final ThreadLocal<MessageDigest> digests = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    static {
+        Random random = new Random(0x5eedc4c3L);
+        for (int i = 0; i < GEAR.length; i++) {
+            GEAR[i] = random.nextLong();
+        }
+    }
+
+    final int minSize;
+    final int maxSize;
+    // a cut is made where the top bits of the hash are all 0, once every averageSize bytes on average
+    private final long mask;
+
+    ContentChunker(Properties prop) {
+        minSize = Integer.parseInt(prop.getProperty("store.chunk.min", "2048"));
+        int averageSize = Integer.parseInt(prop.getProperty("store.chunk.average", "8192"));
+        maxSize = Integer.parseInt(prop.getProperty("store.chunk.max", "65536"));
+        if (minSize <= 0 || averageSize < minSize || maxSize < averageSize) {
+            System.out.println("Chunk sizes must be 0 < store.chunk.min <= store.chunk.average <= store.chunk.max.");
+            System.exit(-1);
+        }
+        mask = -1L << (64 - Integer.numberOfTrailingZeros(Integer.highestOneBit(averageSize)));
+    }
+
+    /**
+     * content split into chunks, in order. a chunk that comes up more than once is only in the
+     * map once.
+     */
+    static class Split {
+        final List<String> hashes = new ArrayList<>();
+        final Map<String, ByteBuffer> chunks = new HashMap<>();
+        long size = 0;
+    }
+
+    /**
+     * @param content left as it is, the chunks are slices of it
+     * @return
+     */
+    Split split(ByteBuffer content) {
+        Split split = new Split();
+        ByteBuffer rest = content.duplicate();
+        while (rest.hasRemaining()) {
+            ByteBuffer chunk = rest.slice();
+            chunk.limit(cut(chunk));
+            String hash = hash(chunk);
+            split.hashes.add(hash);
+            split.chunks.putIfAbsent(hash, chunk);
+            split.size += chunk.limit();
+            rest.position(rest.position() + chunk.limit());
+        }
+        return split;
+    }
+
+    /**
+     * gets the chunks of staged content one by one, in order.
+     */
+    interface ChunkConsumer {
+        /**
+         * @param hash
+         * @param offset where the chunk starts in the content
+         * @param chunk
+         * @throws IOException
+         */
+        void accept(String hash, long offset, ByteBuffer chunk) throws IOException;
+    }
+
+    /**
+     * split staged content without reading all of it at once, through a window that holds a
+     * whole chunk unless the content ends first.
+     *
+     * @param staged
+     * @param consumer
+     * @throws IOException
+     */
+    void split(ReplicaStore.StagedContent staged, ChunkConsumer consumer) throws IOException {
+        split(staged, 0, staged.size(), true, consumer);
+    }
+
+    /**
+     * split a part of staged content, as far as the cuts are final.
+     *
+     * @param staged
+     * @param from where a chunk starts
+     * @param to end of the part
+     * @param last whether the content ends at to, otherwise the last maxSize bytes are left for later
+     * @param consumer
+     * @return where the next chunk starts
+     * @throws IOException
+     */
+    long split(ReplicaStore.StagedContent staged, long from, long to, boolean last, ChunkConsumer consumer) throws IOException {
+        long position = from;
+        ByteBuffer window = ByteBuffer.allocate(0);
+        while (position < to && (last || to - position >= maxSize)) {
+            if (window.remaining() < maxSize && position + window.remaining() < to) {
+                long start = position + window.remaining();
+                ByteBuffer more = staged.read(start, (int) Math.min(4 * maxSize, to - start));
+                if (!more.hasRemaining()) {
+                    throw new IOException("Unexpected end of the staged content.");
+                }
+                // a new buffer every time, the chunks handed out so far stay as they are
+                ByteBuffer joined = ByteBuffer.allocate(window.remaining() + more.remaining());
+                joined.put(window).put(more).flip();
+                window = joined;
+            }
+            ByteBuffer chunk = window.slice();
+            chunk.limit(cut(chunk));
+            consumer.accept(hash(chunk), position, chunk);
+            window.position(window.position() + chunk.limit());
+            position += chunk.limit();
+        }
+        return position;
+    }
+
+    /**
+     * a cut is only final if the data holds maxSize bytes, or everything up to the end of the
+     * content.
+     *
+     * @param data left as it is
+     * @return length of the chunk starting at the position of data
+     */
+    int cut(ByteBuffer data) {
+        int start = data.position();
+        int length = Math.min(data.remaining(), maxSize);
+        if (length <= minSize) {
+            return length;
+        }
+        long hash = 0;
+        // the hash only remembers the last 64 bytes, no need to start any earlier
+        for (int i = Math.max(0, minSize - 64); i < length; i++) {
+            hash = (hash << 1) + GEAR[data.get(start + i) & 0xff];
+            if (i >= minSize && (hash & mask) == 0) {
+                return i + 1;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * @param hash
+     * @return whether it looks like a chunk hash, so it's safe to use as a file name
+     */
+    static boolean isHash(String hash) {
+        if (hash.length() != 64) {
+            return false;
+        }
+        for (int i = 0; i < hash.length(); i++) {
+            char c = hash.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param chunk left as it is
+     * @return hex sha-256 of the bytes
+     */
+    static String hash(ByteBuffer chunk) {
+        MessageDigest digest = digests.get();
+        digest.update(chunk.duplicate());
+        byte[] sum = digest.digest();
+        char[] hex = new char[sum.length * 2];
+        for (int i = 0; i < sum.length; i++) {
+            hex[2 * i] = HEX[(sum[i] >> 4) & 0xf];
+            hex[2 * i + 1] = HEX[sum[i] & 0xf];
+        }
+        return new String(hex);
+    }
+}
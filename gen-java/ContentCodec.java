@@ -0,0 +1,265 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compresses content once, at the coordinator, into a frame that replicas store and pass on as
+ * it is, and that only the node serving the client decompresses. A frame is a marker, the codec,
+ * the content length and the compressed bytes. Content is only kept as a frame if that makes it
+ * smaller, so whether a file is compressed is told by the marker alone: content that isn't a
+ * frame but starts with the marker is stored as a frame anyway. Text never starts with the
+ * marker, it isn't valid utf-8.
+ */
+public class ContentCodec {
+    private static final byte[] MARKER = {(byte) 0xc5, 'D', 'F', 'Z'};
+    static final int HEADER = MARKER.length + 1 + 4;
+    private static final byte LZ4 = 1;
+    private static final byte DEFLATE = 2;
+
+    // the codec new content is compressed with, 0 for none
+    private final byte codec;
+    private final int minSize;
+    // larger content is left alone, so it can still be read in parts and patched in place
+    final int maxSize;
+    // frames can be a little larger than the content in them
+    final int maxFrameSize;
+
+    // metrics
+    private final AtomicLong encoded = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong rawBytes = new AtomicLong();
+    private final AtomicLong encodedBytes = new AtomicLong();
+    private final AtomicLong encodeNanos = new AtomicLong();
+    private final AtomicLong decoded = new AtomicLong();
+    private final AtomicLong decodeNanos = new AtomicLong();
+
+    ContentCodec(Properties prop, int chunkSize) {
+        // none: content is stored as it is, lz4: fast, deflate: smaller but slower
+        String name = prop.getProperty("compression.codec", "none");
+        if (name.equals("lz4")) {
+            codec = LZ4;
+        } else if (name.equals("deflate")) {
+            codec = DEFLATE;
+        } else {
+            codec = 0;
+        }
+        minSize = Integer.parseInt(prop.getProperty("compression.min", "256"));
+        maxSize = chunkSize;
+        maxFrameSize = HEADER + Lz4.maxCompressedLength(maxSize);
+    }
+
+    /**
+     * @param size
+     * @return whether content of this size is compressed when it is written whole
+     */
+    boolean compresses(long size) {
+        return codec != 0 && size >= minSize && size <= maxSize;
+    }
+
+    /**
+     * @param content left as it is
+     * @return a frame of the content if that's smaller, otherwise the content as it is
+     * @throws DFSError if the content has to be a frame but is too large for one
+     */
+    ByteBuffer encode(ByteBuffer content) throws DFSError {
+        if (!compresses(content.remaining())) {
+            return escape(content);
+        }
+        long start = System.nanoTime();
+        ByteBuffer frame = frame(content, codec);
+        encodeNanos.addAndGet(System.nanoTime() - start);
+        rawBytes.addAndGet(content.remaining());
+        if (frame.remaining() >= content.remaining()) {
+            skipped.incrementAndGet();
+            encodedBytes.addAndGet(content.remaining());
+            return escape(content);
+        }
+        encoded.incrementAndGet();
+        encodedBytes.addAndGet(frame.remaining());
+        return frame;
+    }
+
+    /**
+     * @param content left as it is
+     * @return the content as it is, or as a frame if it starts with the marker
+     * @throws DFSError if the content has to be a frame but is too large for one
+     */
+    ByteBuffer escape(ByteBuffer content) throws DFSError {
+        if (!isEncoded(content)) {
+            return content;
+        }
+        if (content.remaining() > maxSize) {
+            throw new DFSError(String.format("Content of more than %d bytes can't start with the bytes compressed content starts with.", maxSize));
+        }
+        return frame(content, codec == 0 ? LZ4 : codec);
+    }
+
+    /**
+     * @param content
+     * @return whether the content is a frame
+     */
+    static boolean isEncoded(ByteBuffer content) {
+        if (content.remaining() < HEADER) {
+            return false;
+        }
+        for (int i = 0; i < MARKER.length; i++) {
+            if (content.get(content.position() + i) != MARKER[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * a replica can only patch content that isn't a frame and doesn't become one. the first bytes
+     * of the patched content tell.
+     *
+     * @param head the first HEADER bytes of the base version, null if there's none
+     * @param offset where the patch starts, -1 is the end
+     * @param data left as it is
+     * @return whether the patch can be applied to the stored bytes
+     */
+    static boolean patchable(ContentChunk head, long offset, ByteBuffer data) {
+        long size = head != null ? head.size : 0;
+        if (head != null && isEncoded(head.data)) {
+            return false;
+        }
+        long start = offset < 0 ? size : offset;
+        if (start >= MARKER.length || start > size) {
+            // the marker can't appear, or the patch fails anyway
+            return true;
+        }
+        ByteBuffer first = ByteBuffer.allocate(HEADER);
+        if (head != null) {
+            first.put(head.data.duplicate());
+        }
+        ByteBuffer overlay = data.duplicate();
+        overlay.limit(overlay.position() + (int) Math.min(overlay.remaining(), HEADER - start));
+        first.position((int) start);
+        first.put(overlay);
+        first.limit((int) Math.min(HEADER, Math.max(size, start + data.remaining())));
+        first.position(0);
+        return !isEncoded(first);
+    }
+
+    /**
+     * @param content left as it is
+     * @return the content a frame holds, or the content as it is if it isn't a frame
+     * @throws DFSError if the frame is corrupt
+     */
+    ByteBuffer decode(ByteBuffer content) throws DFSError {
+        if (!isEncoded(content)) {
+            return content;
+        }
+        long start = System.nanoTime();
+        int position = content.position();
+        byte frameCodec = content.get(position + MARKER.length);
+        int length = content.getInt(position + MARKER.length + 1);
+        if (length < 0) {
+            throw new DFSError("Error decompressing content, the frame is corrupt.");
+        }
+        // thrift hands out heap buffers, their bytes can be used where they are
+        byte[] compressed;
+        int compressedOffset;
+        int compressedLength = content.remaining() - HEADER;
+        if (content.hasArray()) {
+            compressed = content.array();
+            compressedOffset = content.arrayOffset() + position + HEADER;
+        } else {
+            compressed = new byte[compressedLength];
+            compressedOffset = 0;
+            ByteBuffer source = content.duplicate();
+            source.position(position + HEADER);
+            source.get(compressed);
+        }
+        byte[] raw = new byte[length];
+        try {
+            if (frameCodec == LZ4) {
+                Lz4.decompress(compressed, compressedOffset, compressedLength, raw, 0, length);
+            } else if (frameCodec == DEFLATE) {
+                Inflater inflater = new Inflater();
+                try {
+                    inflater.setInput(compressed, compressedOffset, compressedLength);
+                    if (inflater.inflate(raw) != length || !inflater.finished()) {
+                        throw new IOException(String.format("Deflated content isn't %d bytes long.", length));
+                    }
+                } finally {
+                    inflater.end();
+                }
+            } else {
+                throw new IOException(String.format("Unknown codec %d.", frameCodec));
+            }
+        } catch (IOException | DataFormatException e) {
+            e.printStackTrace();
+            throw new DFSError("Error decompressing content.");
+        }
+        decoded.incrementAndGet();
+        decodeNanos.addAndGet(System.nanoTime() - start);
+        return ByteBuffer.wrap(raw);
+    }
+
+    /**
+     * a chunk read from a replica holds the whole frame if the file is compressed, whatever
+     * part was asked for. cut that part out of the content.
+     *
+     * @param chunk
+     * @param offset as asked for, negative counts from the end
+     * @param length as asked for
+     * @return the chunk, with the part of the content asked for if it held a frame
+     * @throws DFSError if the frame is corrupt
+     */
+    ContentChunk decode(ContentChunk chunk, long offset, int length) throws DFSError {
+        if (chunk.data == null || chunk.data.remaining() != chunk.size || !isEncoded(chunk.data)) {
+            return chunk;
+        }
+        ByteBuffer content = decode(chunk.data);
+        int start = (int) ReplicaStore.rangeStart(offset, content.remaining());
+        ContentChunk part = new ContentChunk();
+        part.setVersion(chunk.version);
+        part.setSize(content.remaining());
+        // set directly, setData() would copy the bytes once more
+        part.data = ByteBuffer.wrap(content.array(), start, Math.min(Math.min(length, maxSize), content.remaining() - start)).slice();
+        return part;
+    }
+
+    private static ByteBuffer frame(ByteBuffer content, byte frameCodec) {
+        byte[] raw = new byte[content.remaining()];
+        content.duplicate().get(raw);
+        byte[] frame;
+        int length;
+        if (frameCodec == LZ4) {
+            frame = new byte[HEADER + Lz4.maxCompressedLength(raw.length)];
+            length = HEADER + Lz4.compress(raw, 0, raw.length, frame, HEADER);
+        } else {
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            try {
+                deflater.setInput(raw);
+                deflater.finish();
+                // deflate can grow content a little, by 5 bytes per 16KB block at most
+                frame = new byte[HEADER + raw.length + raw.length / 1000 + 64];
+                length = HEADER + deflater.deflate(frame, HEADER, frame.length - HEADER);
+                if (!deflater.finished()) {
+                    throw new IllegalStateException("Deflated content didn't fit its buffer.");
+                }
+            } finally {
+                deflater.end();
+            }
+        }
+        ByteBuffer header = ByteBuffer.wrap(frame, 0, HEADER);
+        header.put(MARKER).put(frameCodec).putInt(raw.length);
+        return ByteBuffer.wrap(frame, 0, length);
+    }
+
+    String stats() {
+        long raw = rawBytes.get();
+        long compressed = encodedBytes.get();
+        return String.format("compression: codec=%s encoded=%d skipped=%d rawKB=%d storedKB=%d saved=%.1f%% encodeMs=%d decoded=%d decodeMs=%d",
+                codec == LZ4 ? "lz4" : codec == DEFLATE ? "deflate" : "none", encoded.get(), skipped.get(),
+                raw / 1024, compressed / 1024, raw == 0 ? 0.0 : 100.0 * (raw - compressed) / raw,
+                encodeNanos.get() / 1000000, decoded.get(), decodeNanos.get() / 1000000);
+    }
+}
@@ -0,0 +1,38 @@
+import java.lang.reflect.Method;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Picks the threads requests and peer calls run on. With exec.mode = virtual every task gets
+ * its own virtual thread, which is cheap to block on socket calls. Virtual threads need Java 21,
+ * on older runtimes this falls back to the platform thread executors.
+ */
+public class ExecMode {
+    private ExecMode() {
+    }
+
+    /**
+     * a virtual thread per task executor if exec.mode is virtual and the runtime supports it,
+     * null otherwise.
+     *
+     * @param prop
+     * @param purpose what the executor is for, for logging
+     * @return
+     */
+    static ExecutorService newVirtualExecutor(Properties prop, String purpose) {
+        if (!prop.getProperty("exec.mode", "platform").equals("virtual")) {
+            return null;
+        }
+        try {
+            // looked up reflectively so this still compiles and runs on older java versions
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            System.out.printf("Using virtual threads for %s.\n", purpose);
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            System.out.printf("Virtual threads not supported on Java %s, using platform threads for %s.\n",
+                    System.getProperty("java.version"), purpose);
+            return null;
+        }
+    }
+}
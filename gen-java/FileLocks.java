@@ -0,0 +1,77 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed table of locks that serialize writes per file. Every file name maps to one of the
+ * stripes, so memory stays the same no matter how many files there are, at the cost of
+ * unrelated files sometimes sharing a lock. Keeps count of how often each stripe was contended.
+ */
+public class FileLocks {
+    private final ReentrantLock[] stripes;
+
+    // metrics, per stripe
+    private final AtomicLongArray acquisitions;
+    private final AtomicLongArray contentions;
+    private final AtomicLongArray waitNanos;
+
+    FileLocks(int stripeCount) {
+        stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        acquisitions = new AtomicLongArray(stripeCount);
+        contentions = new AtomicLongArray(stripeCount);
+        waitNanos = new AtomicLongArray(stripeCount);
+    }
+
+    void lock(String fileName) {
+        int stripe = stripe(fileName);
+        acquisitions.incrementAndGet(stripe);
+        if (stripes[stripe].tryLock()) {
+            return;
+        }
+        // somebody else has it, wait and keep track of how long for
+        contentions.incrementAndGet(stripe);
+        long start = System.nanoTime();
+        stripes[stripe].lock();
+        waitNanos.addAndGet(stripe, System.nanoTime() - start);
+    }
+
+    void unlock(String fileName) {
+        stripes[stripe(fileName)].unlock();
+    }
+
+    private int stripe(String fileName) {
+        // spread the hash a little, file names often only differ at the end
+        int hash = fileName.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), stripes.length);
+    }
+
+    String stats() {
+        long totalAcquisitions = 0;
+        long totalContentions = 0;
+        long totalWaitNanos = 0;
+        List<Integer> contended = new ArrayList<>();
+        for (int i = 0; i < stripes.length; i++) {
+            totalAcquisitions += acquisitions.get(i);
+            totalContentions += contentions.get(i);
+            totalWaitNanos += waitNanos.get(i);
+            if (contentions.get(i) > 0) {
+                contended.add(i);
+            }
+        }
+        // the most contended stripes first
+        contended.sort((a, b) -> Long.compare(contentions.get(b), contentions.get(a)));
+        StringBuilder hottest = new StringBuilder();
+        for (int stripe : contended.subList(0, Math.min(3, contended.size()))) {
+            hottest.append(String.format(" #%d=%d/%d(%dms)", stripe, contentions.get(stripe),
+                    acquisitions.get(stripe), waitNanos.get(stripe) / 1000000));
+        }
+        return String.format("locks: stripes=%d acquisitions=%d contended=%d (%.1f%%) waitTime=%dms hottest(contended/acquired):%s",
+                stripes.length, totalAcquisitions, totalContentions,
+                totalAcquisitions == 0 ? 0.0 : 100.0 * totalContentions / totalAcquisitions,
+                totalWaitNanos / 1000000, hottest.length() == 0 ? " none" : hottest.toString());
+    }
+}
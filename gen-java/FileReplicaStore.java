@@ -0,0 +1,282 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One file per name, holding a binary header with the version and content length, and the
+ * content bytes after it. Every write replaces the whole file, only appends are made in place. Reads
+ * map the file and keep the mapping around for the next read, until a write replaces the file.
+ */
+public class FileReplicaStore implements ReplicaStore {
+    private static final int HEADER = 8;
+
+    private final String replicaPath;
+    private final ReplicaIndex replicaIndex = new ReplicaIndex();
+    // mapped replicas of recently read files, at most mapCacheSize of them
+    private final Map<String, MappedReplica> mapped = new ConcurrentHashMap<>();
+    private final int mapCacheSize;
+
+    // metrics
+    private final AtomicLong mapHits = new AtomicLong();
+    private final AtomicLong mapMisses = new AtomicLong();
+
+    private static class MappedReplica {
+        final int version;
+        final MappedByteBuffer buffer;
+
+        MappedReplica(int version, MappedByteBuffer buffer) {
+            this.version = version;
+            this.buffer = buffer;
+        }
+    }
+
+    FileReplicaStore(String replicaPath, Properties prop) {
+        this.replicaPath = replicaPath;
+        mapCacheSize = Integer.parseInt(prop.getProperty("store.file.mapcache", "1024"));
+    }
+
+    private static byte[] encode(ByteBuffer content, int version) {
+        ByteBuffer replica = ByteBuffer.allocate(HEADER + content.remaining());
+        replica.putInt(version);
+        replica.putInt(content.remaining());
+        replica.put(content.duplicate());
+        return replica.array();
+    }
+
+    @Override
+    public void load(Path source) throws IOException {
+        Files.createDirectories(Paths.get(replicaPath));
+        try (DirectoryStream<Path> uploads = Files.newDirectoryStream(Paths.get(replicaPath), "upload-*.tmp")) {
+            // uploads that weren't committed before the restart
+            for (Path upload : uploads) {
+                Files.delete(upload);
+            }
+        }
+        for (File original : Objects.requireNonNull(source.toFile().listFiles())) {
+            ReplicaIndex.FileEntry entry = replicaIndex.getOrCreate(original.getName(), Paths.get(replicaPath, original.getName()));
+            if (entry.version.get() == 0) {
+                VersionedData data = ReplicaStore.readOriginal(original.toPath());
+                Files.write(entry.replica, encode(data.content, data.version));
+                entry.advance(data.version);
+            }
+        }
+    }
+
+    @Override
+    public int write(String fileName, ByteBuffer content, int version) throws IOException {
+        ReplicaIndex.FileEntry entry = replicaIndex.getOrCreate(fileName, Paths.get(replicaPath, fileName));
+        byte[] replica = encode(content, version);
+        // writers of the same file take turns, so file and version always go together
+        synchronized (entry) {
+            int currentVersion = entry.version.get();
+            if (currentVersion >= version) {
+                return currentVersion;
+            }
+            // write next to the replica and swap it in, so readers never see a half written file
+            Path temp = Paths.get(entry.replica + ".tmp");
+            Files.write(temp, replica);
+            Files.move(temp, entry.replica, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            entry.advance(version);
+            mapped.remove(fileName);
+            return currentVersion;
+        }
+    }
+
+    @Override
+    public int patch(String fileName, int baseVersion, long offset, ByteBuffer data, int version) throws IOException {
+        ReplicaIndex.FileEntry entry = replicaIndex.get(fileName);
+        if (entry != null && entry.version.get() > 0) {
+            synchronized (entry) {
+                int currentVersion = entry.version.get();
+                if (currentVersion != baseVersion) {
+                    return currentVersion;
+                }
+                try (FileChannel channel = FileChannel.open(entry.replica, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                    ByteBuffer header = ByteBuffer.allocate(HEADER);
+                    if (channel.read(header, 0) < HEADER) {
+                        throw new IOException(String.format("Replica of %s has no header.", fileName));
+                    }
+                    int length = header.getInt(4);
+                    if ((offset < 0 || offset == length) && length <= Integer.MAX_VALUE - HEADER - data.remaining()) {
+                        // appended in place: the bytes past the old length aren't part of any
+                        // version yet, and the header moves to the new version with a single write
+                        // once they are there. readers of the old mapping never look past its length
+                        ByteBuffer appended = data.duplicate();
+                        while (appended.hasRemaining()) {
+                            channel.write(appended, HEADER + length + appended.position() - data.position());
+                        }
+                        header.clear();
+                        header.putInt(version);
+                        header.putInt(length + data.remaining());
+                        header.flip();
+                        while (header.hasRemaining()) {
+                            channel.write(header, header.position());
+                        }
+                        entry.advance(version);
+                        mapped.remove(fileName);
+                        return currentVersion;
+                    }
+                }
+            }
+        }
+        // anything else is written to a new file and swapped in like a write
+        return ReplicaStore.super.patch(fileName, baseVersion, offset, data, version);
+    }
+
+    @Override
+    public VersionedData read(String fileName) throws IOException {
+        ReplicaIndex.FileEntry entry = replicaIndex.get(fileName);
+        if (entry == null || entry.version.get() == 0) {
+            return null;
+        }
+        MappedReplica replica = mapping(fileName, entry);
+        // the version comes from the same file as the content, a write may have happened in between
+        ByteBuffer mappedContent = replica.buffer.duplicate();
+        mappedContent.position(HEADER);
+        // thrift only sends heap buffers, so this one copy out of the mapping is all a read costs
+        byte[] content = new byte[mappedContent.remaining()];
+        mappedContent.get(content);
+        VersionedData data = new VersionedData(replica.version);
+        // set directly, setContent() would copy the bytes once more
+        data.content = ByteBuffer.wrap(content);
+        return data;
+    }
+
+    @Override
+    public ContentChunk readChunk(String fileName, long offset, int length) throws IOException {
+        ReplicaIndex.FileEntry entry = replicaIndex.get(fileName);
+        if (entry == null || entry.version.get() == 0) {
+            return null;
+        }
+        MappedReplica replica = mapping(fileName, entry);
+        ByteBuffer mappedContent = replica.buffer.duplicate();
+        int start = HEADER + (int) ReplicaStore.rangeStart(offset, mappedContent.limit() - HEADER);
+        byte[] data = new byte[Math.min(length, mappedContent.limit() - start)];
+        mappedContent.position(start);
+        mappedContent.get(data);
+        ContentChunk chunk = new ContentChunk();
+        chunk.setVersion(replica.version);
+        chunk.setSize(mappedContent.limit() - HEADER);
+        // set directly, setData() would copy the bytes once more
+        chunk.data = ByteBuffer.wrap(data);
+        return chunk;
+    }
+
+    /**
+     * @param fileName
+     * @param entry
+     * @return the cached mapping of the file, mapped now if there's none for the current version
+     * @throws IOException
+     */
+    private MappedReplica mapping(String fileName, ReplicaIndex.FileEntry entry) throws IOException {
+        MappedReplica replica = mapped.get(fileName);
+        // a mapping made just before a write replaced the file may have slipped in after the write
+        if (replica != null && replica.version == entry.version.get()) {
+            mapHits.incrementAndGet();
+            return replica;
+        }
+        mapMisses.incrementAndGet();
+        replica = map(entry);
+        if (mapped.size() >= mapCacheSize) {
+            // make room, any mapping will do
+            Iterator<String> names = mapped.keySet().iterator();
+            if (names.hasNext()) {
+                mapped.remove(names.next());
+            }
+        }
+        mapped.put(fileName, replica);
+        return replica;
+    }
+
+    @Override
+    public StagedContent stage(String fileName) throws IOException {
+        // staged next to the replicas, so committing is a rename on the same file system
+        Path staged = Files.createTempFile(Paths.get(replicaPath), "upload-", ".tmp");
+        return new StagedFile(staged, HEADER) {
+            @Override
+            public int commit(int version) throws IOException {
+                ReplicaIndex.FileEntry entry = replicaIndex.getOrCreate(fileName, Paths.get(replicaPath, fileName));
+                try {
+                    if (size() > Integer.MAX_VALUE - HEADER) {
+                        throw new IOException(String.format("%d bytes are too many for one replica file.", size()));
+                    }
+                    synchronized (entry) {
+                        int currentVersion = entry.version.get();
+                        if (currentVersion >= version) {
+                            return currentVersion;
+                        }
+                        ByteBuffer header = ByteBuffer.allocate(HEADER);
+                        header.putInt(version);
+                        header.putInt((int) size());
+                        header.flip();
+                        while (header.hasRemaining()) {
+                            channel.write(header, header.position());
+                        }
+                        channel.close();
+                        Files.move(path, entry.replica, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                        entry.advance(version);
+                        mapped.remove(fileName);
+                        return currentVersion;
+                    }
+                } finally {
+                    // gone already if it was moved in place
+                    abort();
+                }
+            }
+        };
+    }
+
+    private static MappedReplica map(ReplicaIndex.FileEntry entry) throws IOException {
+        try (FileChannel channel = FileChannel.open(entry.replica)) {
+            // the mapping stays valid after the channel is closed, and after the file is replaced
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int version = buffer.getInt(0);
+            buffer.limit(HEADER + buffer.getInt(4));
+            return new MappedReplica(version, buffer);
+        }
+    }
+
+    @Override
+    public int version(String fileName) {
+        return replicaIndex.version(fileName);
+    }
+
+    @Override
+    public Map<String, Integer> page(String startAfter, int maxEntries) {
+        return replicaIndex.page(startAfter, maxEntries);
+    }
+
+    @Override
+    public Iterable<String> names() {
+        List<String> names = new ArrayList<>();
+        for (ReplicaIndex.FileEntry entry : replicaIndex.snapshot()) {
+            names.add(entry.name);
+        }
+        return names;
+    }
+
+    @Override
+    public String location(String fileName) {
+        ReplicaIndex.FileEntry entry = replicaIndex.get(fileName);
+        return entry != null ? entry.replica.toString() : "none";
+    }
+
+    @Override
+    public String stats() {
+        long hits = mapHits.get();
+        long misses = mapMisses.get();
+        return String.format("store: engine=file mapped=%d hits=%d misses=%d hitRate=%.1f%%",
+                mapped.size(), hits, misses, hits + misses == 0 ? 0.0 : 100.0 * hits / (hits + misses));
+    }
+}
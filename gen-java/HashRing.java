@@ -0,0 +1,61 @@
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Consistent hash ring deciding which coordinator owns a file. Every coordinator is placed on
+ * the ring at several points (virtual nodes), and a file belongs to the first coordinator
+ * found clockwise from the file name's hash. Adding a coordinator only takes over the files
+ * right before its points, about 1/(coordinators + 1) of them.
+ */
+public class HashRing {
+    private final TreeMap<Long, NodeHandler.Node> ring = new TreeMap<>();
+    final List<NodeHandler.Node> members;
+
+    HashRing(List<NodeHandler.Node> members, int virtualNodes) {
+        this.members = members;
+        for (NodeHandler.Node member : members) {
+            for (int i = 0; i < virtualNodes; i++) {
+                ring.put(hash(String.format("%s:%d#%d", member.address, member.port, i)), member);
+            }
+        }
+    }
+
+    NodeHandler.Node owner(String fileName) {
+        Map.Entry<Long, NodeHandler.Node> owner = ring.ceilingEntry(hash(fileName));
+        // wrap around past the last point
+        return owner != null ? owner.getValue() : ring.firstEntry().getValue();
+    }
+
+    /**
+     * @return the share of the hash space each member owns
+     */
+    Map<NodeHandler.Node, Double> shares() {
+        Map<NodeHandler.Node, Double> shares = new LinkedHashMap<>();
+        for (NodeHandler.Node member : members) {
+            shares.put(member, 0.0);
+        }
+        long previous = ring.lastKey();
+        for (Map.Entry<Long, NodeHandler.Node> point : ring.entrySet()) {
+            // unsigned distance from the previous point, as a share of the whole ring
+            double span = (point.getKey() - previous) / Math.pow(2, 64);
+            shares.merge(point.getValue(), span <= 0 ? span + 1 : span, Double::sum);
+            previous = point.getKey();
+        }
+        return shares;
+    }
+
+    private static long hash(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(key.getBytes(StandardCharsets.UTF_8));
+            long hash = 0;
+            for (int i = 0; i < 8; i++) {
+                hash = (hash << 8) | (digest[i] & 0xff);
+            }
+            return hash;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 not available.", e);
+        }
+    }
+}
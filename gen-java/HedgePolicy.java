@@ -0,0 +1,105 @@
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * When to send a second copy of a content fetch to another node holding the same version.
+ * The hedge goes out once the first node has taken longer than a percentile of recent fetch
+ * latencies, and only while the budget allows, so hedges stay a small fraction of fetches.
+ */
+public class HedgePolicy {
+    private static final int WINDOW = 1000;
+    private static final int RECALCULATE_EVERY = 100;
+
+    private final double percentile;
+    private final long fixedDelayNanos;
+    private final double budget;
+
+    // latencies of the first node asked, and of the fetch as a whole
+    private final long[] primaryNanos = new long[WINDOW];
+    private final long[] servedNanos = new long[WINDOW];
+    private long samples = 0;
+    private volatile long delayNanos = Long.MAX_VALUE;
+    // hedges that may still be sent, earned by every fetch
+    private double tokens = 0;
+
+    // metrics
+    final AtomicLong fetches = new AtomicLong();
+    final AtomicLong hedges = new AtomicLong();
+    final AtomicLong hedgeWins = new AtomicLong();
+    final AtomicLong savedNanos = new AtomicLong();
+    final AtomicLong maxSavedNanos = new AtomicLong();
+    final AtomicLong failovers = new AtomicLong();
+
+    HedgePolicy(Properties prop) {
+        percentile = Double.parseDouble(prop.getProperty("hedge.percentile", "95"));
+        // a fixed delay in ms instead of the percentile, if set
+        fixedDelayNanos = Long.parseLong(prop.getProperty("hedge.delay", "0")) * 1000000;
+        if (fixedDelayNanos > 0) {
+            delayNanos = fixedDelayNanos;
+        }
+        budget = Double.parseDouble(prop.getProperty("hedge.budget", "0.05"));
+    }
+
+    /**
+     * @return how long to wait on the first node before hedging, in ns
+     */
+    long delayNanos() {
+        return delayNanos;
+    }
+
+    /**
+     * take a hedge out of the budget, every fetch adds a fraction of one.
+     *
+     * @return whether a hedge may be sent
+     */
+    synchronized boolean tryHedge() {
+        if (tokens < 1) {
+            return false;
+        }
+        tokens--;
+        hedges.incrementAndGet();
+        return true;
+    }
+
+    synchronized void recordFetch(long primary, long served) {
+        fetches.incrementAndGet();
+        // allow a few hedges in a row, but no more than the budget in the long run
+        tokens = Math.min(10, tokens + budget);
+        int slot = (int) (samples % WINDOW);
+        primaryNanos[slot] = primary;
+        servedNanos[slot] = served;
+        samples++;
+        if (fixedDelayNanos == 0 && samples % RECALCULATE_EVERY == 0) {
+            delayNanos = percentile(primaryNanos, percentile);
+        }
+    }
+
+    void recordWin(long saved) {
+        hedgeWins.incrementAndGet();
+        savedNanos.addAndGet(saved);
+        maxSavedNanos.accumulateAndGet(saved, Math::max);
+    }
+
+    void recordFailover() {
+        failovers.incrementAndGet();
+    }
+
+    private long percentile(long[] window, double percentile) {
+        long[] sorted = Arrays.copyOf(window, (int) Math.min(samples, WINDOW));
+        Arrays.sort(sorted);
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(percentile / 100 * sorted.length) - 1)];
+    }
+
+    synchronized String stats() {
+        long fetchCount = fetches.get();
+        long wins = hedgeWins.get();
+        return String.format("hedge: fetches=%d hedged=%d (%.1f%%) won=%d failedOver=%d delay=%s saved(avg/max)=%.1f/%.1fms "
+                        + "p99(first node/served)=%.1f/%.1fms",
+                fetchCount, hedges.get(), fetchCount == 0 ? 0.0 : 100.0 * hedges.get() / fetchCount, wins, failovers.get(),
+                delayNanos == Long.MAX_VALUE ? "warming up" : String.format("%.1fms", delayNanos / 1e6),
+                wins == 0 ? 0.0 : savedNanos.get() / 1e6 / wins, maxSavedNanos.get() / 1e6,
+                samples == 0 ? 0.0 : percentile(primaryNanos, 99) / 1e6,
+                samples == 0 ? 0.0 : percentile(servedNanos, 99) / 1e6);
+    }
+}
@@ -0,0 +1,113 @@
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.protocol.TCompactProtocol;
+import org.apache.thrift.protocol.TProtocol;
+import org.apache.thrift.transport.TFramedTransport;
+import org.apache.thrift.transport.TSocket;
+import org.apache.thrift.transport.TTransport;
+import org.apache.thrift.transport.TTransportException;
+
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * How to open a connection to a DFS node over one kind of link, "client" (client to node) or
+ * "peer" (node to node). Protocol and framing come from link.<name>.protocol and
+ * link.<name>.framed; the nodes work out what each connection speaks, so links can differ.
+ * The non-blocking servers only understand framed transport.
+ */
+public class LinkConfig {
+    final String link;
+    final String serverType;
+    final String protocol;
+    final boolean framed;
+    final int maxFrame;
+
+    // bytes moved over all connections opened with this config
+    final AtomicLong bytesSent = new AtomicLong();
+    final AtomicLong bytesReceived = new AtomicLong();
+
+    LinkConfig(Properties prop, String link) {
+        this.link = link;
+        serverType = prop.getProperty("server.type", "threadpool");
+        boolean nonBlocking = !serverType.equals("threadpool");
+        protocol = prop.getProperty("link." + link + ".protocol", "binary");
+        boolean framedSetting = Boolean.parseBoolean(prop.getProperty("link." + link + ".framed", String.valueOf(nonBlocking)));
+        if (nonBlocking && !framedSetting) {
+            System.out.printf("%s server needs framed transport, using it for %s links.\n", serverType, link);
+        }
+        framed = framedSetting || nonBlocking;
+        maxFrame = Integer.parseInt(prop.getProperty("server.maxframe", "16384000"));
+    }
+
+    /**
+     * a transport that counts the bytes going through it.
+     */
+    private class CountingTransport extends TTransport {
+        private final TTransport transport;
+
+        CountingTransport(TTransport transport) {
+            this.transport = transport;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return transport.isOpen();
+        }
+
+        @Override
+        public void open() throws TTransportException {
+            transport.open();
+        }
+
+        @Override
+        public void close() {
+            transport.close();
+        }
+
+        @Override
+        public int read(byte[] buf, int off, int len) throws TTransportException {
+            int read = transport.read(buf, off, len);
+            bytesReceived.addAndGet(read);
+            return read;
+        }
+
+        @Override
+        public void write(byte[] buf, int off, int len) throws TTransportException {
+            transport.write(buf, off, len);
+            bytesSent.addAndGet(len);
+        }
+
+        @Override
+        public void flush() throws TTransportException {
+            transport.flush();
+        }
+    }
+
+    /**
+     * open a transport to the given node.
+     *
+     * @param socket unopened socket to the node
+     * @return
+     * @throws TTransportException
+     */
+    TTransport open(TSocket socket) throws TTransportException {
+        TTransport transport = new CountingTransport(socket);
+        if (framed) {
+            transport = new TFramedTransport(transport, maxFrame);
+        }
+        transport.open();
+        return transport;
+    }
+
+    TTransport open(NodeHandler.Node node) throws TTransportException {
+        return open(new TSocket(node.address, node.port));
+    }
+
+    TProtocol protocol(TTransport transport) {
+        return protocol.equals("compact") ? new TCompactProtocol(transport) : new TBinaryProtocol(transport);
+    }
+
+    String describe() {
+        return String.format("%s/%s", protocol, framed ? "framed" : "unframed");
+    }
+}
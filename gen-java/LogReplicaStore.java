@@ -0,0 +1,578 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Replicas as records appended to a log of segment files, with an in-memory index of where the
+ * latest record of every file is. A write is a single sequential append; the old record stays
+ * behind as garbage until compaction copies the live records out of a mostly dead segment and
+ * deletes it. On startup the segments are replayed to rebuild the index, and a torn record at
+ * the end of the log, from a crash in the middle of a write, is cut off.
+ *
+ * A record is: length, crc, version, name length, name, content. The length counts everything
+ * after the crc, and the crc covers the same bytes.
+ */
+public class LogReplicaStore implements ReplicaStore {
+    private static final int HEADER = 8;
+    // records are checked and copied through buffers of this size
+    private static final int COPY_BUFFER = 64 * 1024;
+
+    private final Path directory;
+    private final long segmentSize;
+    private final boolean syncWrites;
+    private final double compactRatio;
+
+    private final ConcurrentSkipListMap<String, Record> index = new ConcurrentSkipListMap<>();
+    private final Map<Integer, Segment> segments = new ConcurrentHashMap<>();
+    // appends, and moving records during compaction, happen one at a time
+    private final ReentrantLock appendLock = new ReentrantLock();
+    // only moved on holding the append lock, read without it by the compactor
+    private volatile Segment active;
+
+    // metrics
+    private final AtomicLong appends = new AtomicLong();
+    private final AtomicLong appendedBytes = new AtomicLong();
+    private final AtomicLong compactions = new AtomicLong();
+    private final AtomicLong reclaimedBytes = new AtomicLong();
+    private long recoveredRecords = 0;
+    private long truncatedBytes = 0;
+    private long skippedRecords = 0;
+
+    private static class Segment {
+        final int id;
+        final Path path;
+        final FileChannel channel;
+        volatile long size;
+        // bytes of records that are still the latest of their file
+        final AtomicLong liveBytes = new AtomicLong();
+
+        Segment(int id, Path path) throws IOException {
+            this.id = id;
+            this.path = path;
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.size = channel.size();
+        }
+    }
+
+    private static class Record {
+        final int version;
+        final Segment segment;
+        final long offset;
+        final int length;
+        final long contentOffset;
+        final int contentLength;
+
+        Record(int version, Segment segment, long offset, int length, int nameLength) {
+            this.version = version;
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+            this.contentOffset = offset + HEADER + 8 + nameLength;
+            this.contentLength = length - HEADER - 8 - nameLength;
+        }
+    }
+
+    LogReplicaStore(String replicaPath, Properties prop) throws IOException {
+        directory = Paths.get(replicaPath);
+        segmentSize = Long.parseLong(prop.getProperty("store.log.segmentsize", "16777216"));
+        syncWrites = Boolean.parseBoolean(prop.getProperty("store.log.sync", "false"));
+        compactRatio = Double.parseDouble(prop.getProperty("store.log.compactratio", "0.5"));
+        Files.createDirectories(directory);
+        recover();
+
+        Thread compactor = new Thread(() -> compactLoop(Long.parseLong(prop.getProperty("store.log.compactdelay", "30000"))));
+        compactor.setDaemon(true);
+        compactor.start();
+    }
+
+    private static Path segmentPath(Path directory, int id) {
+        return directory.resolve(String.format("segment-%06d.log", id));
+    }
+
+    /**
+     * rebuild the index from the segments on disk, oldest first, so the newest record of every
+     * file wins. only the last segment can end in a record torn by a crash, anything after its
+     * first broken record is cut off. a broken record in a sealed segment is skipped instead, the
+     * records after it are still good.
+     *
+     * @throws IOException
+     */
+    private void recover() throws IOException {
+        try (DirectoryStream<Path> uploads = Files.newDirectoryStream(directory, "upload-*.tmp")) {
+            // uploads that weren't committed before the restart
+            for (Path upload : uploads) {
+                Files.delete(upload);
+            }
+        }
+        List<Integer> ids = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "segment-*.log")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                ids.add(Integer.parseInt(name.substring("segment-".length(), name.length() - ".log".length())));
+            }
+        }
+        Collections.sort(ids);
+        for (int id : ids) {
+            Segment segment = new Segment(id, segmentPath(directory, id));
+            segments.put(id, segment);
+            boolean last = id == ids.get(ids.size() - 1);
+            long offset = 0;
+            while (true) {
+                Record record = readRecord(segment, offset);
+                if (record == null) {
+                    long length = last ? -1 : recordLength(segment, offset);
+                    if (length < 0) {
+                        break;
+                    }
+                    System.out.printf("Skipping a broken record of %d bytes at %d in %s.\n", length, offset, segment.path);
+                    skippedRecords++;
+                    offset += length;
+                    continue;
+                }
+                recoveredRecords++;
+                index.merge(recordName(record), record, (old, replayed) -> replayed.version >= old.version ? replayed : old);
+                offset += record.length;
+            }
+            if (offset < segment.size && last) {
+                System.out.printf("Cutting off %d broken bytes at the end of %s.\n", segment.size - offset, segment.path);
+                truncatedBytes += segment.size - offset;
+                segment.channel.truncate(offset);
+                segment.size = offset;
+            } else if (offset < segment.size) {
+                // the length of a record is broken, there's no telling where the next one starts
+                System.out.printf("Can't read the last %d bytes of %s, the records in them are lost.\n", segment.size - offset, segment.path);
+                skippedRecords++;
+            }
+        }
+        for (Record record : index.values()) {
+            record.segment.liveBytes.addAndGet(record.length);
+        }
+        active = ids.isEmpty() ? newSegment(1) : segments.get(ids.get(ids.size() - 1));
+        if (recoveredRecords > 0) {
+            System.out.printf("Recovered %d files from %d records in %d segments.\n", index.size(), recoveredRecords, ids.size());
+        }
+    }
+
+    /**
+     * @param segment
+     * @param offset
+     * @return the length of the record at offset as its header says, whether or not its crc
+     * matches, -1 if the header can't be right
+     * @throws IOException
+     */
+    private static long recordLength(Segment segment, long offset) throws IOException {
+        if (offset + HEADER + 8 > segment.size) {
+            return -1;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER);
+        readFully(segment.channel, header, offset);
+        int bodyLength = header.getInt(0);
+        return bodyLength < 8 || offset + HEADER + bodyLength > segment.size ? -1 : HEADER + bodyLength;
+    }
+
+    /**
+     * @param segment
+     * @param offset
+     * @return the record at offset, null if there is no complete, intact record there
+     * @throws IOException
+     */
+    private Record readRecord(Segment segment, long offset) throws IOException {
+        if (offset + HEADER + 8 > segment.size) {
+            return null;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER + 8);
+        readFully(segment.channel, header, offset);
+        int bodyLength = header.getInt(0);
+        int nameLength = header.getInt(HEADER + 4);
+        if (bodyLength < 8 || offset + HEADER + bodyLength > segment.size || nameLength < 0 || 8 + nameLength > bodyLength) {
+            return null;
+        }
+        // records can be large, so check them a buffer at a time
+        CRC32 crc = new CRC32();
+        ByteBuffer body = ByteBuffer.allocate(Math.min(bodyLength, COPY_BUFFER));
+        for (long position = 0; position < bodyLength; position += body.limit()) {
+            body.clear();
+            body.limit((int) Math.min(body.capacity(), bodyLength - position));
+            readFully(segment.channel, body, offset + HEADER + position);
+            crc.update(body.array(), 0, body.limit());
+        }
+        if ((int) crc.getValue() != header.getInt(4)) {
+            return null;
+        }
+        return new Record(header.getInt(HEADER), segment, offset, HEADER + bodyLength, nameLength);
+    }
+
+    private String recordName(Record record) throws IOException {
+        int nameLength = (int) (record.contentOffset - record.offset - HEADER - 8);
+        ByteBuffer name = ByteBuffer.allocate(nameLength);
+        readFully(record.segment.channel, name, record.offset + HEADER + 8);
+        return new String(name.array(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param fileName
+     * @param version
+     * @param contentLength
+     * @return header and name of a record, the crc left at 0
+     */
+    private static ByteBuffer recordHead(String fileName, int version, long contentLength) {
+        byte[] name = fileName.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer head = ByteBuffer.allocate(HEADER + 8 + name.length);
+        head.putInt((int) (8 + name.length + contentLength));
+        head.putInt(0);
+        head.putInt(version);
+        head.putInt(name.length);
+        head.put(name);
+        head.flip();
+        return head;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of segment.");
+            }
+        }
+    }
+
+    private Segment newSegment(int id) throws IOException {
+        Segment segment = new Segment(id, segmentPath(directory, id));
+        segments.put(id, segment);
+        return segment;
+    }
+
+    private static byte[] encode(String fileName, ByteBuffer content, int version) {
+        ByteBuffer head = recordHead(fileName, version, content.remaining());
+        ByteBuffer record = ByteBuffer.allocate(head.remaining() + content.remaining());
+        record.put(head);
+        record.put(content.duplicate());
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), HEADER, record.capacity() - HEADER);
+        record.putInt(4, (int) crc.getValue());
+        return record.array();
+    }
+
+    /**
+     * append a whole record to the active segment, starting a new one if it is full. only
+     * called with the append lock held.
+     *
+     * @param bytes
+     * @return where the record went
+     * @throws IOException
+     */
+    private long append(byte[] bytes) throws IOException {
+        return append(ByteBuffer.wrap(bytes), null, 0, 0);
+    }
+
+    /**
+     * append a record made of some bytes followed by a part of another file, copied over
+     * without going through the heap. only called with the append lock held.
+     *
+     * @param head
+     * @param source null if the head is the whole record
+     * @param position where the rest of the record starts in the source
+     * @param count
+     * @return where the record went
+     * @throws IOException
+     */
+    private long append(ByteBuffer head, FileChannel source, long position, long count) throws IOException {
+        long length = head.remaining() + count;
+        if (active.size > 0 && active.size + length > segmentSize) {
+            active = newSegment(active.id + 1);
+        }
+        long offset = active.size;
+        int headLength = head.remaining();
+        while (head.hasRemaining()) {
+            active.channel.write(head, offset + head.position());
+        }
+        for (long copied = 0; copied < count; ) {
+            long transferred = active.channel.transferFrom(source.position(position + copied), offset + headLength + copied, count - copied);
+            if (transferred <= 0) {
+                throw new IOException("Unexpected end of the record to copy.");
+            }
+            copied += transferred;
+        }
+        if (syncWrites) {
+            active.channel.force(false);
+        }
+        active.size += length;
+        active.liveBytes.addAndGet(length);
+        appends.incrementAndGet();
+        appendedBytes.addAndGet(length);
+        return offset;
+    }
+
+    @Override
+    public void load(Path source) throws IOException {
+        try (DirectoryStream<Path> originals = Files.newDirectoryStream(source)) {
+            for (Path original : originals) {
+                String fileName = original.getFileName().toString();
+                if (!index.containsKey(fileName)) {
+                    VersionedData data = ReplicaStore.readOriginal(original);
+                    write(fileName, data.content, data.version);
+                }
+            }
+        }
+    }
+
+    @Override
+    public int write(String fileName, ByteBuffer content, int version) throws IOException {
+        byte[] bytes = encode(fileName, content, version);
+        appendLock.lock();
+        try {
+            Record current = index.get(fileName);
+            int currentVersion = current != null ? current.version : 0;
+            if (currentVersion >= version) {
+                return currentVersion;
+            }
+            long offset = append(bytes);
+            index.put(fileName, new Record(version, active, offset, bytes.length, fileName.getBytes(StandardCharsets.UTF_8).length));
+            if (current != null) {
+                current.segment.liveBytes.addAndGet(-current.length);
+            }
+            return currentVersion;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    @Override
+    public VersionedData read(String fileName) throws IOException {
+        while (true) {
+            Record record = index.get(fileName);
+            if (record == null) {
+                return null;
+            }
+            ByteBuffer content = ByteBuffer.allocate(record.contentLength);
+            try {
+                readFully(record.segment.channel, content, record.contentOffset);
+            } catch (ClosedChannelException e) {
+                // the segment was compacted away meanwhile, the record is somewhere else now
+                checkMoved(fileName, record, e);
+                continue;
+            }
+            content.flip();
+            VersionedData data = new VersionedData(record.version);
+            // set directly, setContent() would copy the bytes once more
+            data.content = content;
+            return data;
+        }
+    }
+
+    @Override
+    public ContentChunk readChunk(String fileName, long offset, int length) throws IOException {
+        while (true) {
+            Record record = index.get(fileName);
+            if (record == null) {
+                return null;
+            }
+            long start = ReplicaStore.rangeStart(offset, record.contentLength);
+            ByteBuffer data = ByteBuffer.allocate((int) Math.min(length, record.contentLength - start));
+            try {
+                readFully(record.segment.channel, data, record.contentOffset + start);
+            } catch (ClosedChannelException e) {
+                // the segment was compacted away meanwhile, the record is somewhere else now
+                checkMoved(fileName, record, e);
+                continue;
+            }
+            ContentChunk chunk = new ContentChunk();
+            chunk.setVersion(record.version);
+            chunk.setSize(record.contentLength);
+            data.flip();
+            // set directly, setData() would copy the bytes once more
+            chunk.data = data;
+            return chunk;
+        }
+    }
+
+    /**
+     * after a read found the segment of a record closed: reading again finds the record where
+     * compaction moved it, or the write that replaced it.
+     *
+     * @param fileName
+     * @param record the record that was read
+     * @param e
+     * @throws IOException if the read was interrupted, or if the record is still in the closed
+     * segment, which stays closed then
+     */
+    private void checkMoved(String fileName, Record record, ClosedChannelException e) throws IOException {
+        if (e instanceof ClosedByInterruptException) {
+            throw new IOException(String.format("Reading File %s was interrupted.", fileName), e);
+        }
+        if (index.get(fileName) == record) {
+            throw new IOException(String.format("%s was closed while File %s was still in it.", record.segment.path, fileName), e);
+        }
+    }
+
+    @Override
+    public StagedContent stage(String fileName) throws IOException {
+        return new StagedFile(Files.createTempFile(directory, "upload-", ".tmp"), 0) {
+            @Override
+            public int commit(int version) throws IOException {
+                try {
+                    if (HEADER + 8 + fileName.length() * 3L + size() > Integer.MAX_VALUE) {
+                        throw new IOException(String.format("%d bytes are too many for one record.", size()));
+                    }
+                    // the crc goes over the whole record, so work it out before taking the lock
+                    ByteBuffer head = recordHead(fileName, version, size());
+                    CRC32 crc = new CRC32();
+                    crc.update(head.array(), HEADER, head.limit() - HEADER);
+                    ByteBuffer content = ByteBuffer.allocate(COPY_BUFFER);
+                    for (long position = 0; position < size(); position += content.limit()) {
+                        content.clear();
+                        content.limit((int) Math.min(content.capacity(), size() - position));
+                        readFully(channel, content, position);
+                        crc.update(content.array(), 0, content.limit());
+                    }
+                    head.putInt(4, (int) crc.getValue());
+                    int nameLength = head.limit() - HEADER - 8;
+
+                    appendLock.lock();
+                    try {
+                        Record current = index.get(fileName);
+                        int currentVersion = current != null ? current.version : 0;
+                        if (currentVersion >= version) {
+                            return currentVersion;
+                        }
+                        long offset = append(head, channel, 0, size());
+                        index.put(fileName, new Record(version, active, offset, (int) (HEADER + 8 + nameLength + size()), nameLength));
+                        if (current != null) {
+                            current.segment.liveBytes.addAndGet(-current.length);
+                        }
+                        return currentVersion;
+                    } finally {
+                        appendLock.unlock();
+                    }
+                } finally {
+                    abort();
+                }
+            }
+        };
+    }
+
+    @Override
+    public int version(String fileName) {
+        Record record = index.get(fileName);
+        return record != null ? record.version : 0;
+    }
+
+    @Override
+    public Map<String, Integer> page(String startAfter, int maxEntries) {
+        Map<String, Integer> page = new HashMap<>();
+        for (Map.Entry<String, Record> entry : index.tailMap(startAfter, false).entrySet()) {
+            if (page.size() >= maxEntries) {
+                break;
+            }
+            page.put(entry.getKey(), entry.getValue().version);
+        }
+        return page;
+    }
+
+    @Override
+    public Iterable<String> names() {
+        return index.keySet();
+    }
+
+    @Override
+    public String location(String fileName) {
+        Record record = index.get(fileName);
+        return record != null ? record.segment.path + "@" + record.offset : "none";
+    }
+
+    private void compactLoop(long compactDelay) {
+        while (true) {
+            try {
+                // run till this program runs, sleeping for a delay after each run
+                Thread.sleep(compactDelay);
+                for (Segment segment : new ArrayList<>(segments.values())) {
+                    if (segment != active && segment.liveBytes.get() < compactRatio * segment.size) {
+                        compact(segment);
+                    }
+                }
+            } catch (IOException e) {
+                System.out.println("Compaction failed.");
+                e.printStackTrace();
+            } catch (InterruptedException e) {
+                System.out.println("compactLoop() interrupted.");
+                return;
+            }
+        }
+    }
+
+    /**
+     * copy the live records of a sealed segment to the end of the log, then delete it. the
+     * copies are forced to disk first, whether or not writes are, as the records were durable
+     * in the old segment.
+     *
+     * @param segment left alone if it is still the active one
+     * @throws IOException
+     */
+    private void compact(Segment segment) throws IOException {
+        appendLock.lock();
+        try {
+            // the caller looked at the active segment without the lock, and a segment that isn't
+            // active anymore never will be again
+            if (segment == active) {
+                return;
+            }
+        } finally {
+            appendLock.unlock();
+        }
+        long before = segment.size;
+        int moved = 0;
+        // segments the copies went to, the active one may have moved on meanwhile
+        Set<Segment> targets = new HashSet<>();
+        for (Map.Entry<String, Record> entry : index.entrySet()) {
+            Record record = entry.getValue();
+            if (record.segment != segment) {
+                continue;
+            }
+            appendLock.lock();
+            try {
+                // a write may have replaced the record meanwhile, then it's garbage too
+                if (index.get(entry.getKey()) == record) {
+                    long offset = append(ByteBuffer.allocate(0), segment.channel, record.offset, record.length);
+                    int nameLength = (int) (record.contentOffset - record.offset - HEADER - 8);
+                    index.put(entry.getKey(), new Record(record.version, active, offset, record.length, nameLength));
+                    targets.add(active);
+                    moved++;
+                }
+            } finally {
+                appendLock.unlock();
+            }
+        }
+        for (Segment target : targets) {
+            target.channel.force(false);
+        }
+        segments.remove(segment.id);
+        segment.channel.close();
+        Files.delete(segment.path);
+        compactions.incrementAndGet();
+        reclaimedBytes.addAndGet(before - segment.liveBytes.get());
+        System.out.printf("Compacted %s: moved %d live records, reclaimed %d bytes.\n", segment.path, moved, before - segment.liveBytes.get());
+    }
+
+    @Override
+    public String stats() {
+        long size = 0;
+        long live = 0;
+        for (Segment segment : segments.values()) {
+            size += segment.size;
+            live += segment.liveBytes.get();
+        }
+        return String.format("store: engine=log files=%d segments=%d size=%dKB live=%.0f%% appends=%d appended=%dKB "
+                        + "compactions=%d reclaimed=%dKB recovered=%d truncated=%dB skipped=%d",
+                index.size(), segments.size(), size / 1024, size == 0 ? 100.0 : 100.0 * live / size, appends.get(),
+                appendedBytes.get() / 1024, compactions.get(), reclaimedBytes.get() / 1024, recoveredRecords, truncatedBytes, skippedRecords);
+    }
+}
@@ -0,0 +1,183 @@
+import java.io.IOException;
+
+/**
+ * The LZ4 block format: runs of literal bytes, each followed by a copy of earlier output given
+ * as a distance and a length. Matches are found through a hash table of the last position of
+ * every 4 byte sequence, greedily, skipping ahead faster the longer nothing matches, so content
+ * that doesn't compress costs little time.
+ */
+public class Lz4 {
+    private static final int MIN_MATCH = 4;
+    private static final int HASH_LOG = 14;
+    // the format wants the last 5 bytes as literals, and no match starting in the last 12
+    private static final int LAST_LITERALS = 5;
+    private static final int MATCH_LIMIT = 12;
+    private static final int MAX_DISTANCE = 65535;
+    // after 2^SKIP_TRIGGER misses in a row the search moves 2 bytes at a time, then 3, and so on
+    private static final int SKIP_TRIGGER = 6;
+
+    /**
+     * @param length
+     * @return the most bytes length bytes can take compressed
+     */
+    static int maxCompressedLength(int length) {
+        return length + length / 255 + 16;
+    }
+
+    /**
+     * @param src
+     * @param srcOffset
+     * @param srcLength
+     * @param dst at least maxCompressedLength(srcLength) bytes from dstOffset on
+     * @param dstOffset
+     * @return length of the compressed block
+     */
+    static int compress(byte[] src, int srcOffset, int srcLength, byte[] dst, int dstOffset) {
+        int end = srcOffset + srcLength;
+        int out = dstOffset;
+        int anchor = srcOffset;
+        if (srcLength > MATCH_LIMIT) {
+            int[] table = new int[1 << HASH_LOG];
+            int matchLimit = end - MATCH_LIMIT;
+            int position = srcOffset + 1;
+            int misses = 1 << SKIP_TRIGGER;
+            while (position < matchLimit) {
+                int sequence = readInt(src, position);
+                int hash = hash(sequence);
+                // positions are kept one up, so 0 is an empty slot
+                int candidate = table[hash] - 1 + srcOffset;
+                table[hash] = position - srcOffset + 1;
+                if (candidate < srcOffset || position - candidate > MAX_DISTANCE || readInt(src, candidate) != sequence) {
+                    position += misses++ >>> SKIP_TRIGGER;
+                    continue;
+                }
+                misses = 1 << SKIP_TRIGGER;
+                // the match may have started earlier than where it was found
+                while (position > anchor && candidate > srcOffset && src[position - 1] == src[candidate - 1]) {
+                    position--;
+                    candidate--;
+                }
+                int matchLength = MIN_MATCH;
+                while (position + matchLength < end - LAST_LITERALS && src[candidate + matchLength] == src[position + matchLength]) {
+                    matchLength++;
+                }
+                out = writeSequence(src, anchor, position - anchor, position - candidate, matchLength, dst, out);
+                position += matchLength;
+                anchor = position;
+            }
+        }
+        // the rest is literals only
+        int literals = end - anchor;
+        int token = Math.min(literals, 15) << 4;
+        dst[out++] = (byte) token;
+        out = writeLength(literals, dst, out);
+        System.arraycopy(src, anchor, dst, out, literals);
+        return out + literals - dstOffset;
+    }
+
+    /**
+     * @param src
+     * @param srcOffset
+     * @param srcLength length of the compressed block
+     * @param dst
+     * @param dstOffset
+     * @param dstLength exactly the length the block decompresses to
+     * @throws IOException if the block is corrupt or doesn't decompress to dstLength bytes
+     */
+    static void decompress(byte[] src, int srcOffset, int srcLength, byte[] dst, int dstOffset, int dstLength)
+            throws IOException {
+        int in = srcOffset;
+        int inEnd = srcOffset + srcLength;
+        int out = dstOffset;
+        int outEnd = dstOffset + dstLength;
+        try {
+            while (true) {
+                int token = src[in++] & 0xff;
+                int literals = token >>> 4;
+                if (literals == 15) {
+                    int more;
+                    do {
+                        more = src[in++] & 0xff;
+                        literals += more;
+                    } while (more == 255);
+                }
+                if (literals > inEnd - in || literals > outEnd - out) {
+                    throw new IOException("Corrupt LZ4 block, literals run past the end.");
+                }
+                System.arraycopy(src, in, dst, out, literals);
+                in += literals;
+                out += literals;
+                if (in == inEnd) {
+                    break;
+                }
+                int distance = (src[in] & 0xff) | (src[in + 1] & 0xff) << 8;
+                in += 2;
+                if (distance == 0 || distance > out - dstOffset) {
+                    throw new IOException("Corrupt LZ4 block, match before the start.");
+                }
+                int matchLength = token & 15;
+                if (matchLength == 15) {
+                    int more;
+                    do {
+                        more = src[in++] & 0xff;
+                        matchLength += more;
+                    } while (more == 255);
+                }
+                matchLength += MIN_MATCH;
+                if (matchLength > outEnd - out) {
+                    throw new IOException("Corrupt LZ4 block, match runs past the end.");
+                }
+                if (distance >= matchLength) {
+                    System.arraycopy(dst, out - distance, dst, out, matchLength);
+                    out += matchLength;
+                } else {
+                    // the match overlaps what it writes, e.g. a repeated byte
+                    for (int i = 0; i < matchLength; i++, out++) {
+                        dst[out] = dst[out - distance];
+                    }
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IOException("Corrupt LZ4 block, it ends too early.", e);
+        }
+        if (out != outEnd) {
+            throw new IOException(String.format("LZ4 block decompressed to %d bytes, not %d.", out - dstOffset, dstLength));
+        }
+    }
+
+    private static int writeSequence(byte[] src, int literalStart, int literals, int distance, int matchLength, byte[] dst, int out) {
+        int token = Math.min(literals, 15) << 4 | Math.min(matchLength - MIN_MATCH, 15);
+        dst[out++] = (byte) token;
+        out = writeLength(literals, dst, out);
+        System.arraycopy(src, literalStart, dst, out, literals);
+        out += literals;
+        dst[out++] = (byte) distance;
+        dst[out++] = (byte) (distance >>> 8);
+        return writeLength(matchLength - MIN_MATCH, dst, out);
+    }
+
+    /**
+     * the part of a length that doesn't fit in its 4 bits of the token, in bytes of 255 and a last
+     * one below that.
+     */
+    private static int writeLength(int length, byte[] dst, int out) {
+        if (length >= 15) {
+            int rest = length - 15;
+            while (rest >= 255) {
+                dst[out++] = (byte) 255;
+                rest -= 255;
+            }
+            dst[out++] = (byte) rest;
+        }
+        return out;
+    }
+
+    private static int readInt(byte[] bytes, int position) {
+        return (bytes[position] & 0xff) | (bytes[position + 1] & 0xff) << 8
+                | (bytes[position + 2] & 0xff) << 16 | (bytes[position + 3] & 0xff) << 24;
+    }
+
+    private static int hash(int sequence) {
+        return (sequence * -1640531535) >>> (32 - HASH_LOG);
+    }
+}
@@ -0,0 +1,120 @@
+import org.apache.thrift.TException;
+import org.apache.thrift.TProcessor;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.protocol.TCompactProtocol;
+import org.apache.thrift.protocol.TProtocol;
+import org.apache.thrift.transport.TFramedTransport;
+import org.apache.thrift.transport.TTransport;
+import org.apache.thrift.transport.TTransportException;
+
+/**
+ * Lets a node accept binary or compact protocol, framed or not, on the same port. The first
+ * bytes of a connection tell what it speaks: a binary message starts with 0x80, a compact one
+ * with 0x82, and anything else is taken as the size of a frame. Replies use the same protocol.
+ * This is worked out again for every message, so nothing has to be remembered per connection.
+ */
+public class NegotiatingProcessor implements TProcessor {
+    private static final byte BINARY_START = (byte) 0x80;
+    private static final byte COMPACT_START = (byte) 0x82;
+
+    private final TProcessor processor;
+    private final int maxFrame;
+
+    private static class Link {
+        final TProtocol in;
+        final TProtocol out;
+
+        Link(TProtocol in, TProtocol out) {
+            this.in = in;
+            this.out = out;
+        }
+    }
+
+    /**
+     * hands bytes already read back out before reading on from the transport.
+     */
+    private static class ReplayTransport extends TTransport {
+        private final TTransport transport;
+        private final byte[] prefix;
+        private int position = 0;
+
+        ReplayTransport(TTransport transport, byte[] prefix) {
+            this.transport = transport;
+            this.prefix = prefix;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return transport.isOpen();
+        }
+
+        @Override
+        public void open() throws TTransportException {
+            transport.open();
+        }
+
+        @Override
+        public void close() {
+            transport.close();
+        }
+
+        @Override
+        public int read(byte[] buf, int off, int len) throws TTransportException {
+            if (position < prefix.length) {
+                int read = Math.min(len, prefix.length - position);
+                System.arraycopy(prefix, position, buf, off, read);
+                position += read;
+                return read;
+            }
+            return transport.read(buf, off, len);
+        }
+
+        @Override
+        public void write(byte[] buf, int off, int len) throws TTransportException {
+            transport.write(buf, off, len);
+        }
+
+        @Override
+        public void flush() throws TTransportException {
+            transport.flush();
+        }
+    }
+
+    NegotiatingProcessor(TProcessor processor, int maxFrame) {
+        this.processor = processor;
+        this.maxFrame = maxFrame;
+    }
+
+    @Override
+    public boolean process(TProtocol in, TProtocol out) throws TException {
+        Link link = negotiate(in.getTransport(), out.getTransport());
+        return processor.process(link.in, link.out);
+    }
+
+    private Link negotiate(TTransport inTransport, TTransport outTransport) throws TTransportException {
+        byte[] start = new byte[1];
+        inTransport.readAll(start, 0, 1);
+        if (start[0] == BINARY_START || start[0] == COMPACT_START) {
+            TTransport in = new ReplayTransport(inTransport, start);
+            return new Link(protocol(start[0], in), protocol(start[0], outTransport));
+        }
+        // framed, look past the rest of the frame size at the message itself. the framed
+        // transport reads exactly one frame, so a new one per message is fine
+        byte[] frameStart = new byte[5];
+        frameStart[0] = start[0];
+        inTransport.readAll(frameStart, 1, 4);
+        TTransport in = new TFramedTransport(new ReplayTransport(inTransport, frameStart), maxFrame);
+        TTransport out = new TFramedTransport(outTransport, maxFrame);
+        return new Link(protocol(frameStart[4], in), protocol(frameStart[4], out));
+    }
+
+    private TProtocol protocol(byte start, TTransport transport) throws TTransportException {
+        if (start == BINARY_START) {
+            return new TBinaryProtocol(transport);
+        } else if (start == COMPACT_START) {
+            return new TCompactProtocol(transport);
+        }
+        throw new TTransportException(TTransportException.UNKNOWN,
+                String.format("Unknown protocol, message starts with 0x%02x.", start));
+    }
+}
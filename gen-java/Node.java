@@ -1,16 +1,22 @@
+import org.apache.thrift.TProcessor;
+import org.apache.thrift.server.THsHaServer;
 import org.apache.thrift.server.TServer;
 import org.apache.thrift.server.TThreadPoolServer;
+import org.apache.thrift.server.TThreadedSelectorServer;
+import org.apache.thrift.transport.TFramedTransport;
+import org.apache.thrift.transport.TNonblockingServerSocket;
 import org.apache.thrift.transport.TServerSocket;
 import org.apache.thrift.transport.TServerTransport;
 
 import java.io.FileInputStream;
 import java.io.InputStream;
 import java.util.Properties;
+import java.util.concurrent.ExecutorService;
 
 // Generated code
 public class Node {
     static NodeHandler handler;
-    private static NodeService.Processor<NodeHandler> processor;
+    private static TProcessor processor;
     static Properties prop;
 
     public static void main(String[] args) {
@@ -22,9 +28,21 @@ public class Node {
             // read node id from cli
             Integer nodeIndex = Integer.valueOf(args[0]);
             handler = new NodeHandler(prop, nodeIndex);
-            processor = new NodeService.Processor<>(handler);
+            // clients and other nodes may each use their own protocol and transport
+            int maxFrame = Integer.parseInt(prop.getProperty("server.maxframe", "16384000"));
+            processor = new NegotiatingProcessor(new NodeService.Processor<>(handler), maxFrame);
 
-            startThreadPoolServer(nodeIndex);
+            // pick the server implementation, the non-blocking ones need framed transport
+            switch (prop.getProperty("server.type", "threadpool")) {
+                case "hsha":
+                    startHsHaServer(nodeIndex);
+                    break;
+                case "selector":
+                    startSelectorServer(nodeIndex);
+                    break;
+                default:
+                    startThreadPoolServer(nodeIndex);
+            }
         } catch (Exception x) {
             x.printStackTrace();
         }
@@ -37,6 +55,10 @@ public class Node {
             TServerTransport serverTransport = new TServerSocket(serverPort);
             TThreadPoolServer.Args args = new TThreadPoolServer.Args(serverTransport);
             args.processor(processor);
+            ExecutorService executor = ExecMode.newVirtualExecutor(prop, "serving connections");
+            if (executor != null) {
+                args.executorService(executor);
+            }
             TServer server = new TThreadPoolServer(args);
 
             System.out.printf("Starting the DFS Node(No. %d)...\n", nodeIndex);
@@ -45,5 +67,60 @@ public class Node {
             e.printStackTrace();
         }
     }
+
+    private static void startHsHaServer(Integer nodeIndex) {
+        try {
+            int serverPort = Integer.parseInt(prop.getProperty("node.ports").split("\\s*,\\s*")[nodeIndex]);
+            int workers = Integer.parseInt(prop.getProperty("server.workers", "16"));
+            int maxFrame = Integer.parseInt(prop.getProperty("server.maxframe", "16384000"));
+            // Create Thrift server with one selector thread and a pool of workers
+            TNonblockingServerSocket serverTransport = new TNonblockingServerSocket(serverPort);
+            THsHaServer.Args args = new THsHaServer.Args(serverTransport);
+            args.processor(processor);
+            args.transportFactory(new TFramedTransport.Factory(maxFrame));
+            args.maxReadBufferBytes = maxFrame;
+            args.minWorkerThreads(workers).maxWorkerThreads(workers);
+            ExecutorService executor = ExecMode.newVirtualExecutor(prop, "serving requests");
+            if (executor != null) {
+                // workers are virtual, a thread per request
+                args.executorService(executor);
+            }
+            TServer server = new THsHaServer(args);
+
+            System.out.printf("Starting the DFS Node(No. %d) with a half-sync/half-async server, %d workers...\n",
+                    nodeIndex, workers);
+            server.serve();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static void startSelectorServer(Integer nodeIndex) {
+        try {
+            int serverPort = Integer.parseInt(prop.getProperty("node.ports").split("\\s*,\\s*")[nodeIndex]);
+            int workers = Integer.parseInt(prop.getProperty("server.workers", "16"));
+            int selectors = Integer.parseInt(prop.getProperty("server.selectors", "2"));
+            int maxFrame = Integer.parseInt(prop.getProperty("server.maxframe", "16384000"));
+            // Create Thrift server with several selector threads and a pool of workers
+            TNonblockingServerSocket serverTransport = new TNonblockingServerSocket(serverPort);
+            TThreadedSelectorServer.Args args = new TThreadedSelectorServer.Args(serverTransport);
+            args.processor(processor);
+            args.transportFactory(new TFramedTransport.Factory(maxFrame));
+            args.maxReadBufferBytes = maxFrame;
+            args.selectorThreads(selectors).workerThreads(workers);
+            ExecutorService executor = ExecMode.newVirtualExecutor(prop, "serving requests");
+            if (executor != null) {
+                // workers are virtual, a thread per request
+                args.executorService(executor);
+            }
+            TServer server = new TThreadedSelectorServer(args);
+
+            System.out.printf("Starting the DFS Node(No. %d) with a threaded selector server, %d selectors, %d workers...\n",
+                    nodeIndex, selectors, workers);
+            server.serve();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
 }
 
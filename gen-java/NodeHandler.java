@@ -1,30 +1,108 @@
 import org.apache.thrift.TException;
-import org.apache.thrift.protocol.TBinaryProtocol;
-import org.apache.thrift.protocol.TProtocol;
-import org.apache.thrift.transport.TSocket;
-import org.apache.thrift.transport.TTransport;
+import org.apache.thrift.transport.TTransportException;
 
-import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.nio.ByteBuffer;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
 import java.util.*;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToIntFunction;
 
 public class NodeHandler implements NodeService.Iface {
     Properties prop;
     Node thisNode;
     String replicaPath;
-    Map<String, Path> nameReplicaMap;
-    Map<String, Integer> nameVersionMap;
-    Map<String, Lock> nameLockMap;
+    ReplicaStore store;
+    FileLocks fileLocks;
     List<Node> nodes;
-    Node coordNode;
-    int readQuorumSize;
-    int writeQuorumSize;
+    // votes of each node and the quorums in votes
+    QuorumConfig quorumConfig;
+    // coordinators, each owning a part of the file names
+    HashRing ring;
+    ConnectionPool pool;
+    // latency and errors of every node as a quorum member
+    PeerStats peerStats;
+    boolean latencyQuorum;
+    ExecutorService peerExecutor;
+    long quorumTimeout;
+    boolean firstNQuorum;
+    int quorumExtra;
+    boolean versionedRead;
+    boolean coalesceWrites;
+    // writes waiting for the file lock, per file
+    Map<String, List<PendingWrite>> pendingWrites = new ConcurrentHashMap<>();
+    int versionPageSize;
+    // newest versions and where they are, on coordinators with read.cache on
+    VersionCache versionCache;
+    // second content fetches to another up to date node, on coordinators with read.hedge on
+    HedgePolicy hedgePolicy;
+    // quorums in use on coordinators, switched with the read/write mix if quorum.adapt is on
+    AdaptiveQuorum quorums;
+    // chunked uploads this node coordinates, and the ones it stages as a replica
+    Uploads openUploads;
+    Uploads stagedUploads;
+    int chunkSize;
+    // writes and syncs offered as chunk manifests, on nodes with transfer.dedup on
+    ContentChunker dedupChunker;
+    // content is compressed by the coordinator writing it and decompressed by the node serving it
+    ContentCodec codec;
+
+    // quorum metrics
+    final AtomicLong quorumRounds = new AtomicLong();
+    final AtomicLong quorumSaves = new AtomicLong();
+    final AtomicLong quorumSpeedups = new AtomicLong();
+    final AtomicLong quorumCancelled = new AtomicLong();
+    final AtomicLong quorumFailedReplies = new AtomicLong();
+    final AtomicLong versionedReadsLocal = new AtomicLong();
+    final AtomicLong versionedReadsRemote = new AtomicLong();
+    final AtomicLong coalescedRounds = new AtomicLong();
+    final AtomicLong coalescedWrites = new AtomicLong();
+    final AtomicLong maxBatch = new AtomicLong();
+    final AtomicLong manifestsOffered = new AtomicLong();
+    final AtomicLong offeredBytes = new AtomicLong();
+    final AtomicLong sentChunkBytes = new AtomicLong();
+    final AtomicLong patches = new AtomicLong();
+    final AtomicLong patchedBytes = new AtomicLong();
+    final AtomicLong patchFullCopies = new AtomicLong();
+    final AtomicLong patchRewrites = new AtomicLong();
+
+    /**
+     * a call that can be made on this node directly or on any other node through a client.
+     */
+    interface NodeCall<T> {
+        T call(NodeService.Iface node) throws TException;
+    }
+
+    /**
+     * where the chunks of a manifest offered to other nodes come from.
+     */
+    interface ChunkSource {
+        Map<String, ByteBuffer> chunks(List<String> hashes) throws TException;
+    }
+
+    /**
+     * a write queued behind the file lock. only touched with the file lock held.
+     */
+    static class PendingWrite {
+        final ByteBuffer content;
+        boolean done = false;
+        boolean created = false;
+        DFSError error;
+
+        PendingWrite(ByteBuffer content) {
+            this.content = content;
+        }
+    }
 
     static class Node {
         String address;
@@ -46,6 +124,11 @@ public class NodeHandler implements NodeService.Iface {
             Node node = (Node) obj;
             return this.address.equals(node.address) && this.port == node.port;
         }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(address, port);
+        }
     }
 
     NodeHandler(Properties properties, int nodeIndex) {
@@ -55,43 +138,103 @@ public class NodeHandler implements NodeService.Iface {
         String[] addresses = prop.getProperty("node.addresses").split("\\s*,\\s*");
         String[] ports = prop.getProperty("node.ports").split("\\s*,\\s*");
         thisNode = new Node(addresses[nodeIndex], Integer.parseInt(ports[nodeIndex]));
-        int coordIndex = Integer.parseInt(prop.getProperty("coord.id"));
-        coordNode = new Node(addresses[coordIndex], Integer.parseInt(ports[coordIndex]));
+        // the coordinators split the file names between them, a single coordinator by default
+        List<Node> coordinators = new ArrayList<>();
+        for (String coordIndex : prop.getProperty("ring.members", prop.getProperty("coord.id")).split("\\s*,\\s*")) {
+            int index = Integer.parseInt(coordIndex);
+            coordinators.add(new Node(addresses[index], Integer.parseInt(ports[index])));
+        }
+        ring = new HashRing(coordinators, Integer.parseInt(prop.getProperty("ring.vnodes", "64")));
+        System.out.println("Coordinators and their Share of File Names:");
+        for (Map.Entry<Node, Double> share : ring.shares().entrySet()) {
+            System.out.printf("%s ::: %s ::: %.1f%%\n", share.getKey().address, share.getKey().port, 100 * share.getValue());
+        }
+
+        // other nodes stuff
+        try {
+            quorumConfig = new QuorumConfig(prop);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            System.exit(-1);
+        }
+        nodes = quorumConfig.nodes;
+        System.out.println("DFS Node Addresses, Ports and Votes:");
+        for (Node node : nodes) {
+            System.out.printf("%s ::: %s ::: %d\n", node.address, node.port, quorumConfig.votes(node));
+        }
+        System.out.printf("Quorums: read %d, write %d of %d votes\n", quorumConfig.readVotes, quorumConfig.writeVotes, quorumConfig.totalVotes);
 
         // local replica stuff
         replicaPath = prop.getProperty("tempdir.prefix") + nodeIndex;
-        nameReplicaMap = new HashMap<>();
-        nameVersionMap = new HashMap<>();
         createLocalReplica(prop.getProperty("fs.path"));
         System.out.println("Filename to Replica Mapping:");
-        for (Map.Entry<String, Path> nameReplica : nameReplicaMap.entrySet()) {
-            System.out.printf("%s ::: %s\n", nameReplica.getKey(), nameReplica.getValue().toString());
+        for (String name : store.names()) {
+            System.out.printf("%s ::: %s\n", name, store.location(name));
         }
         System.out.println("Filename to Version Mapping:");
-        for (Map.Entry<String, Integer> nameVersion : nameVersionMap.entrySet()) {
-            System.out.printf("%s ::: %s\n", nameVersion.getKey(), nameVersion.getValue());
+        for (String name : store.names()) {
+            System.out.printf("%s ::: %s\n", name, store.version(name));
         }
 
-        // other nodes stuff
-        int nodesCount = Integer.parseInt(prop.getProperty("nodes.count"));
-        assert addresses.length == nodesCount;
-        assert ports.length == nodesCount;
-        nodes = new ArrayList<>();
-        for (int i = 0; i < nodesCount; i++) {
-            nodes.add(new Node(addresses[i], Integer.parseInt(ports[i])));
-        }
-        System.out.println("DFS Node Addresses and Ports:");
-        for (Node node : nodes) {
-            System.out.printf("%s ::: %s\n", node.address, node.port);
+        // chunked transfers move at most chunkSize bytes per call, idle uploads are dropped after the timeout
+        chunkSize = Integer.parseInt(prop.getProperty("chunk.size", "1048576"));
+        long uploadTimeout = Long.parseLong(prop.getProperty("upload.timeout", "300000"));
+        openUploads = new Uploads("coordinator", store, true, uploadTimeout);
+        stagedUploads = new Uploads("replica", store, false, uploadTimeout);
+        new Thread(() -> expireUploads(uploadTimeout)).start();
+        // every node decompresses, only coordinators compress, and only with compression.codec set
+        codec = new ContentCodec(prop, chunkSize);
+
+        // shared, pooled connections for all calls to other nodes
+        pool = new ConnectionPool(prop);
+        new Thread(this::reportMetrics).start();
+        // quorum members are contacted in parallel, each quorum round has to finish within the timeout
+        peerExecutor = ExecMode.newVirtualExecutor(prop, "peer calls");
+        if (peerExecutor == null) {
+            peerExecutor = Executors.newCachedThreadPool();
+        }
+        quorumTimeout = Long.parseLong(prop.getProperty("quorum.timeout", "5000"));
+        // random: any nodes, latency: the fastest healthy nodes, with some randomness
+        peerStats = new PeerStats(prop);
+        latencyQuorum = prop.getProperty("quorum.select", "random").equals("latency");
+        // in firstn mode a few extra nodes are asked and the first quorumSize replies win
+        firstNQuorum = prop.getProperty("quorum.mode", "fixed").equals("firstn");
+        quorumExtra = Integer.parseInt(prop.getProperty("quorum.extra", "-1"));
+        // fetch versions and content in a single round trip on reads
+        versionedRead = Boolean.parseBoolean(prop.getProperty("read.versioned", "false"));
+        versionPageSize = Integer.parseInt(prop.getProperty("quorum.pagesize", "1000"));
+        // batch up writes to the same file that queue behind each other
+        coalesceWrites = Boolean.parseBoolean(prop.getProperty("write.coalesce", "false"));
+        // offer content as chunk manifests, so nodes are only sent the chunks they don't have yet
+        if (Boolean.parseBoolean(prop.getProperty("transfer.dedup", "false"))) {
+            if (!(store instanceof ChunkReplicaStore)) {
+                System.out.println("transfer.dedup needs store.engine = chunk on every node.");
+                System.exit(-1);
+            }
+            dedupChunker = new ContentChunker(prop);
         }
 
         // coordinator specifics
-        if (thisNode.equals(coordNode)) {
-            readQuorumSize = Integer.parseInt(prop.getProperty("quorum.read"));
-            writeQuorumSize = Integer.parseInt(prop.getProperty("quorum.write"));
-            nameLockMap = new HashMap<>();
-            for (String name : nameVersionMap.keySet()) {
-                nameLockMap.put(name, new ReentrantLock());
+        if (ring.members.contains(thisNode)) {
+            try {
+                quorums = new AdaptiveQuorum(prop, quorumConfig);
+            } catch (IllegalArgumentException e) {
+                System.out.println(e.getMessage());
+                System.exit(-1);
+            }
+            System.out.println(quorums.stats());
+            if (Boolean.parseBoolean(prop.getProperty("quorum.adapt", "false"))) {
+                new Thread(this::adaptQuorums).start();
+            }
+            // a fixed number of striped locks, shared by all files
+            fileLocks = new FileLocks(Integer.parseInt(prop.getProperty("locks.stripes", "64")));
+            // serve reads from a node known to be current, without asking a whole quorum
+            if (Boolean.parseBoolean(prop.getProperty("read.cache", "false"))) {
+                versionCache = new VersionCache();
+            }
+            // ask another node for the content if the first one is slow to send it
+            if (Boolean.parseBoolean(prop.getProperty("read.hedge", "false"))) {
+                hedgePolicy = new HedgePolicy(prop);
             }
             // launch synchronization thread in the background
             new Thread(this::synchronize).start();
@@ -100,14 +243,16 @@ public class NodeHandler implements NodeService.Iface {
 
     private void createLocalReplica(String srcPath) {
         try {
-            File src = new File(srcPath);
-            Files.createDirectories(Paths.get(replicaPath));
-            for (File original : Objects.requireNonNull(src.listFiles())) {
-                Path replica = Paths.get(replicaPath, original.getName());
-                Files.copy(original.toPath(), replica, StandardCopyOption.REPLACE_EXISTING);
-                nameReplicaMap.put(original.getName(), replica);
-                nameVersionMap.put(original.getName(), 1);
+            // file: one file per replica, log: all replicas appended to segment files,
+            // chunk: replicas split into chunks, every chunk kept once
+            if (prop.getProperty("store.engine", "file").equals("log")) {
+                store = new LogReplicaStore(replicaPath, prop);
+            } else if (prop.getProperty("store.engine", "file").equals("chunk")) {
+                store = new ChunkReplicaStore(replicaPath, prop);
+            } else {
+                store = new FileReplicaStore(replicaPath, prop);
             }
+            store.load(Paths.get(srcPath));
         } catch (Exception e) {
             System.out.println("Error in Creating Local Replica.");
             e.printStackTrace();
@@ -117,85 +262,85 @@ public class NodeHandler implements NodeService.Iface {
 
     @Override
     public boolean write(String fileName, String content) throws TException {
-        // pass on this call to the coordinator and relay the result back
+        return writeBytes(fileName, TextContent.encode(content));
+    }
+
+    @Override
+    public boolean writeBytes(String fileName, ByteBuffer content) throws TException {
+        // pass on this call to the file's coordinator and relay the result back
         System.out.printf("write(%s) invoked.\n", fileName);
         boolean result;
-        if (coordNode.equals(thisNode)) {
+        Node owner = ring.owner(fileName);
+        if (owner.equals(thisNode)) {
             // if this is the coordinator
-            result = coordWrite(fileName, content);
+            result = coordWriteBytes(fileName, content);
         } else {
-            TTransport transport = new TSocket(coordNode.address, coordNode.port);
-            transport.open();
-            TProtocol protocol = new TBinaryProtocol(transport);
-            NodeService.Client client = new NodeService.Client(protocol);
-            result = client.coordWrite(fileName, content);
-            transport.close();
+            result = pool.callOnce(owner, client -> client.coordWriteBytes(fileName, content));
         }
         return result;
     }
 
     @Override
     public String read(String fileName) throws TException {
-        // pass on this call to the coordinator and relay the result back
+        return TextContent.decode(readBytes(fileName));
+    }
+
+    @Override
+    public ByteBuffer readBytes(String fileName) throws TException {
+        // pass on this call to the file's coordinator and relay the result back
         System.out.printf("read(%s) called.\n", fileName);
-        String content;
-        if (coordNode.equals(thisNode)) {
+        ByteBuffer content;
+        Node owner = ring.owner(fileName);
+        if (owner.equals(thisNode)) {
             // if this is the coordinator
-            content = coordRead(fileName);
+            content = coordReadBytes(fileName);
         } else {
-            TTransport transport = new TSocket(coordNode.address, coordNode.port);
-            transport.open();
-            TProtocol protocol = new TBinaryProtocol(transport);
-            NodeService.Client client = new NodeService.Client(protocol);
-            content = client.coordRead(fileName);
-            transport.close();
+            content = pool.call(owner, client -> client.coordReadBytes(fileName));
         }
-        return content;
+        // the content is passed on as it is stored, this is the one place it is decompressed
+        return codec.decode(content);
     }
 
     @Override
     public Map<String, Integer> ls() throws TException {
-        // pass on this call to the coordinator and relay the result back
+        // any one coordinator lists the whole DFS, its read quorum has the latest version of every file
         System.out.println("ls() called.");
-        Map<String, Integer> lsResult;
-        if (coordNode.equals(thisNode)) {
-            // if this is the coordinator
-            lsResult = coordLS();
-        } else {
-            TTransport transport = new TSocket(coordNode.address, coordNode.port);
-            transport.open();
-            TProtocol protocol = new TBinaryProtocol(transport);
-            NodeService.Client client = new NodeService.Client(protocol);
-            lsResult = client.coordLS();
-            transport.close();
+        if (ring.members.contains(thisNode)) {
+            // if this is a coordinator
+            return coordLS();
+        }
+        // spread the listings over the coordinators, and go on to the next one if one is down
+        List<Node> coordinators = new ArrayList<>(ring.members);
+        Collections.rotate(coordinators, -coordinators.indexOf(ring.owner(thisNode.address + ":" + thisNode.port)));
+        for (Node coordinator : coordinators) {
+            try {
+                return pool.call(coordinator, NodeService.Client::coordLS);
+            } catch (DFSError e) {
+                throw e;
+            } catch (TException e) {
+                System.out.printf("Coordinator %s:%d failed: %s\n", coordinator.address, coordinator.port, e);
+            }
         }
-        return lsResult;
+        throw new DFSError("DFS Node Failure.");
     }
 
     @Override
     public boolean quorumWrite(String fileName, String content, int version) throws TException {
+        return quorumWriteBytes(fileName, TextContent.encode(content), version);
+    }
+
+    @Override
+    public boolean quorumWriteBytes(String fileName, ByteBuffer content, int version) throws TException {
         System.out.printf("quorumWrite(%s, %d) called.\n", fileName, version);
-        boolean fileCreated = false;
         try {
-            String fileContent = version + "\n" + content;
-            Path replica;
-            int currentVersion = nameVersionMap.get(fileName) != null ? nameVersionMap.get(fileName) : 0;
+            int currentVersion = store.write(fileName, content, version);
             if (currentVersion >= version) {
                 // if already on a newer or same version, skip write
                 System.out.printf("File %s already on same or newer version, skip write.\n", fileName);
-                return fileCreated;
-            } else if (currentVersion == 0) {
-                // if this is the first version of the file
-                replica = Paths.get(replicaPath, fileName);
-                nameReplicaMap.put(fileName, replica);
-                fileCreated = true;
-            } else {
-                // if file is already known
-                replica = nameReplicaMap.get(fileName);
+                return false;
             }
-            Files.write(replica, fileContent.getBytes());
-            nameVersionMap.put(fileName, version);
-            return fileCreated;
+            // if this is the first version of the file
+            return currentVersion == 0;
         } catch (IOException e) {
             e.printStackTrace();
             throw new DFSError(String.format("Error writing to File %s Version %d", fileName, version));
@@ -204,17 +349,23 @@ public class NodeHandler implements NodeService.Iface {
 
     @Override
     public String quorumRead(String fileName) throws TException {
+        return TextContent.decode(codec.decode(quorumReadBytes(fileName)));
+    }
+
+    @Override
+    public ByteBuffer quorumReadBytes(String fileName) throws TException {
         System.out.printf("quorumRead(%s) called.\n", fileName);
+        VersionedData data;
         try {
-            Path replica = nameReplicaMap.get(fileName);
-            List<String> content = Files.readAllLines(replica);
-            // remove version line
-            content = content.subList(1, content.size());
-            return String.join("\n", content);
+            data = store.read(fileName);
         } catch (IOException e) {
             e.printStackTrace();
             throw new DFSError(String.format("Error reading from File %s", fileName));
         }
+        if (data == null) {
+            throw new DFSError(String.format("File %s doesn't exist on this node.", fileName));
+        }
+        return data.content;
     }
 
     /**
@@ -226,91 +377,281 @@ public class NodeHandler implements NodeService.Iface {
      */
     @Override
     public int quorumVersion(String fileName) throws TException {
-        return nameVersionMap.get(fileName) != null ? nameVersionMap.get(fileName) : 0;
+        return store.version(fileName);
+    }
+
+    /**
+     * return the version of a file along with its content, but only send the content if the
+     * version is newer than minVersion. version is 0 if the file doesn't exist.
+     *
+     * @param fileName
+     * @param minVersion
+     * @return
+     * @throws TException
+     */
+    @Override
+    public VersionedContent quorumReadVersioned(String fileName, int minVersion) throws TException {
+        VersionedData data = quorumReadVersionedBytes(fileName, minVersion);
+        VersionedContent versionedContent = new VersionedContent(data.version);
+        if (data.isSetContent()) {
+            versionedContent.setContent(TextContent.decode(codec.decode(data.content)));
+        }
+        return versionedContent;
+    }
+
+    @Override
+    public VersionedData quorumReadVersionedBytes(String fileName, int minVersion) throws TException {
+        VersionedData data = new VersionedData(quorumVersion(fileName));
+        if (data.version <= minVersion) {
+            // same as quorumVersion, nothing else to do
+            return data;
+        }
+        System.out.printf("quorumReadVersioned(%s, %d) called.\n", fileName, minVersion);
+        try {
+            // the store reads version and content together, a write may have happened in between
+            return store.read(fileName);
+        } catch (IOException e) {
+            e.printStackTrace();
+            throw new DFSError(String.format("Error reading from File %s", fileName));
+        }
+    }
+
+    /**
+     * return up to maxEntries files with their versions, in file name order, starting after
+     * startAfter. an empty startAfter gives the first page, a short page means there are no more.
+     *
+     * @param startAfter
+     * @param maxEntries
+     * @return
+     * @throws TException
+     */
+    @Override
+    public Map<String, Integer> quorumVersionPage(String startAfter, int maxEntries) throws TException {
+        return store.page(startAfter, maxEntries);
     }
 
     @Override
     public boolean coordWrite(String fileName, String content) throws TException {
-        System.out.printf("coordWrite(%s) called.\n", fileName);
-        Lock replicaLock = nameLockMap.get(fileName);
-        if (replicaLock == null) {
-            // file doesn't exist already
-            nameVersionMap.put(fileName, 0);
-            nameLockMap.put(fileName, new ReentrantLock());
-            replicaLock = nameLockMap.get(fileName);
-        }
-        replicaLock.lock();
-        try {
-            List<Node> quorum = createQuorum(writeQuorumSize);
-            // get the latest version
-            int maxVersion = 0;
-            int version;
-            for (Node node : quorum) {
-                if (node.equals(thisNode)) {
-                    // if this is the coordinator
-                    version = quorumVersion(fileName);
-                } else {
-                    TTransport transport = new TSocket(node.address, node.port);
-                    transport.open();
-                    TProtocol protocol = new TBinaryProtocol(transport);
-                    NodeService.Client client = new NodeService.Client(protocol);
-                    version = client.quorumVersion(fileName);
-                    transport.close();
-                }
-                if (version > maxVersion) {
-                    maxVersion = version;
-                }
-            }
+        return coordWriteBytes(fileName, TextContent.encode(content));
+    }
 
-            // write the new content to everyone in the quorum
-            boolean result = false;
-            for (Node node : quorum) {
-                if (node.equals(thisNode)) {
-                    result = quorumWrite(fileName, content, maxVersion + 1);
-                } else {
-                    TTransport transport = new TSocket(node.address, node.port);
-                    transport.open();
-                    TProtocol protocol = new TBinaryProtocol(transport);
-                    NodeService.Client client = new NodeService.Client(protocol);
-                    result = client.quorumWrite(fileName, content, maxVersion + 1);
-                    transport.close();
-                }
-            }
-            return result;
+    @Override
+    public boolean coordWriteBytes(String fileName, ByteBuffer content) throws TException {
+        System.out.printf("coordWrite(%s) called.\n", fileName);
+        if (!ring.owner(fileName).equals(thisNode)) {
+            // writes to a file are only serialized by the coordinator owning it
+            throw new DFSError(String.format("This node doesn't coordinate %s.", fileName));
+        }
+        quorums.countWrite();
+        if (coalesceWrites) {
+            return coalescedWrite(fileName, content);
+        }
+        fileLocks.lock(fileName);
+        try {
+            return writeRound(fileName, content, 1);
         } catch (DFSError e) {
             throw e;
         } catch (TException e) {
             e.printStackTrace();
             throw new DFSError("DFS Node Failure.");
         } finally {
-            replicaLock.unlock();
+            fileLocks.unlock(fileName);
+        }
+    }
+
+    /**
+     * queue the write, then whoever gets the file lock first writes everything queued for the
+     * file in one quorum round. the queued writes get consecutive versions in the order they
+     * arrived, and only the last content, the one the file ends up with, is sent out.
+     *
+     * @param fileName
+     * @param content
+     * @return
+     * @throws TException
+     */
+    private boolean coalescedWrite(String fileName, ByteBuffer content) throws TException {
+        PendingWrite write = new PendingWrite(content);
+        pendingWrites.compute(fileName, (name, queue) -> {
+            if (queue == null) {
+                queue = new ArrayList<>();
+            }
+            queue.add(write);
+            return queue;
+        });
+        fileLocks.lock(fileName);
+        try {
+            if (!write.done) {
+                // nobody took this write along yet, so write it and whatever queued up behind it
+                List<PendingWrite> batch = pendingWrites.remove(fileName);
+                try {
+                    boolean created = writeRound(fileName, batch.get(batch.size() - 1).content, batch.size());
+                    // only the first write of the batch can have created the file
+                    batch.get(0).created = created;
+                } catch (DFSError e) {
+                    for (PendingWrite pending : batch) {
+                        pending.error = e;
+                    }
+                } catch (TException e) {
+                    e.printStackTrace();
+                    for (PendingWrite pending : batch) {
+                        pending.error = new DFSError("DFS Node Failure.");
+                    }
+                }
+                for (PendingWrite pending : batch) {
+                    pending.done = true;
+                }
+                coalescedRounds.incrementAndGet();
+                coalescedWrites.addAndGet(batch.size());
+                maxBatch.accumulateAndGet(batch.size(), Math::max);
+            }
+            if (write.error != null) {
+                throw write.error;
+            }
+            return write.created;
+        } finally {
+            fileLocks.unlock(fileName);
+        }
+    }
+
+    /**
+     * one version round and one write round on a write quorum, with the file lock held.
+     *
+     * @param fileName
+     * @param content final content of the file
+     * @param versionCount how many versions this write stands for
+     * @return whether the file was created
+     * @throws TException
+     */
+    private boolean writeRound(String fileName, ByteBuffer content, int versionCount) throws TException {
+        int writeVotes = quorums.beginWrite();
+        try {
+            return writeRound(fileName, content, versionCount, writeVotes);
+        } finally {
+            quorums.endWrite();
+        }
+    }
+
+    private boolean writeRound(String fileName, ByteBuffer content, int versionCount, int writeVotes) throws TException {
+        if (versionCache != null) {
+            // reads go through the quorum until the new version is in place
+            versionCache.invalidate(fileName);
+        }
+        // compressed once here, every replica stores and passes on the same bytes
+        ByteBuffer stored = codec.encode(content);
+        // content too small for more than one chunk goes as it is
+        ContentChunker.Split split = dedupChunker != null && stored.remaining() > dedupChunker.minSize
+                ? dedupChunker.split(stored) : null;
+        List<Node> quorum = createQuorum(writeVotes);
+        // get the latest version
+        int maxVersion = 0;
+        for (int version : fanOut(quorum, writeVotes, node -> node.quorumVersion(fileName)).values()) {
+            if (version > maxVersion) {
+                maxVersion = version;
+            }
         }
+
+        // write the new content to everyone in the quorum, the file is only new if it was created everywhere
+        boolean result = true;
+        int newVersion = maxVersion + versionCount;
+        Map<Node, Boolean> written = fanOut(quorum, writeVotes, node -> split != null
+                ? offerManifest(node, fileName, newVersion, split.hashes, split.size, hashes -> pick(split.chunks, hashes))
+                : node.quorumWriteBytes(fileName, stored, newVersion));
+        for (boolean fileCreated : written.values()) {
+            result &= fileCreated;
+        }
+        if (versionCache != null) {
+            versionCache.record(fileName, newVersion, written.keySet());
+        }
+        return result;
     }
 
     @Override
     public String coordRead(String fileName) throws TException {
+        return TextContent.decode(codec.decode(coordReadBytes(fileName)));
+    }
+
+    @Override
+    public ByteBuffer coordReadBytes(String fileName) throws TException {
         System.out.printf("coordRead(%s) called.\n", fileName);
-        List<Node> quorum = createQuorum(readQuorumSize);
+        quorums.countRead();
+        if (versionCache == null) {
+            return quorumCoordRead(fileName);
+        }
+        long start = System.nanoTime();
+        ByteBuffer content = cachedRead(fileName);
+        if (content != null) {
+            versionCache.hits.incrementAndGet();
+            versionCache.hitNanos.addAndGet(System.nanoTime() - start);
+            return content;
+        }
+        try {
+            return quorumCoordRead(fileName);
+        } finally {
+            versionCache.misses.incrementAndGet();
+            versionCache.missNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * read from a single node known to hold the newest version, preferably this one. the node
+     * still reports its version, in case it lost the file since, e.g. by being restarted.
+     *
+     * @param fileName
+     * @return the content, null if the read has to go through a quorum
+     */
+    private ByteBuffer cachedRead(String fileName) {
+        VersionCache.Entry cached = versionCache.get(fileName);
+        if (cached == null) {
+            return null;
+        }
+        Node holder = thisNode;
+        if (!cached.holders.contains(thisNode)) {
+            List<Node> holders = new ArrayList<>(cached.holders);
+            holder = holders.get(ThreadLocalRandom.current().nextInt(holders.size()));
+        }
+        try {
+            VersionedData reply;
+            if (holder.equals(thisNode)) {
+                // if this is the coordinator
+                reply = quorumReadVersionedBytes(fileName, cached.version - 1);
+            } else {
+                reply = pool.call(holder, client -> client.quorumReadVersionedBytes(fileName, cached.version - 1));
+            }
+            if (reply.isSetContent()) {
+                return reply.content;
+            }
+            System.out.printf("Node %s:%d is behind on %s.\n", holder.address, holder.port, fileName);
+        } catch (TException e) {
+            System.out.printf("Node %s:%d failed: %s\n", holder.address, holder.port, e);
+        }
+        versionCache.dropHolder(fileName, cached.version, holder);
+        return null;
+    }
+
+    private ByteBuffer quorumCoordRead(String fileName) throws TException {
+        int readVotes = quorums.beginRead();
+        try {
+            if (versionedRead) {
+                return coordReadVersioned(fileName, readVotes);
+            }
+            return quorumCoordRead(fileName, readVotes);
+        } finally {
+            quorums.endRead();
+        }
+    }
+
+    private ByteBuffer quorumCoordRead(String fileName, int readVotes) throws TException {
+        List<Node> quorum = createQuorum(readVotes);
         // get the node with latest version
         int maxVersion = 0;
         Node latestNode = quorum.get(0);
-        int version;
+        Map<Node, Integer> nodeVersionMapping;
         try {
-            for (Node node : quorum) {
-                if (node.equals(thisNode)) {
-                    // if this is the coordinator
-                    version = quorumVersion(fileName);
-                } else {
-                    TTransport transport = new TSocket(node.address, node.port);
-                    transport.open();
-                    TProtocol protocol = new TBinaryProtocol(transport);
-                    NodeService.Client client = new NodeService.Client(protocol);
-                    version = client.quorumVersion(fileName);
-                    transport.close();
-                }
-                if (version > maxVersion) {
-                    maxVersion = version;
-                    latestNode = node;
+            nodeVersionMapping = fanOut(quorum, readVotes, node -> node.quorumVersion(fileName));
+            for (Map.Entry<Node, Integer> nodeVersion : nodeVersionMapping.entrySet()) {
+                if (nodeVersion.getValue() > maxVersion) {
+                    maxVersion = nodeVersion.getValue();
+                    latestNode = nodeVersion.getKey();
                 }
             }
         } catch (DFSError e) {
@@ -327,17 +668,23 @@ public class NodeHandler implements NodeService.Iface {
 
         // get the contents of the latest file
         try {
-            String content;
+            ByteBuffer content;
             if (latestNode.equals(thisNode)) {
                 // if this is the coordinator
-                content = quorumRead(fileName);
+                content = quorumReadBytes(fileName);
+            } else if (hedgePolicy != null) {
+                // any node that has the latest version can stand in for a slow one
+                List<Node> latestNodes = new ArrayList<>();
+                for (Map.Entry<Node, Integer> nodeVersion : nodeVersionMapping.entrySet()) {
+                    if (nodeVersion.getValue() == maxVersion && !nodeVersion.getKey().equals(latestNode)) {
+                        latestNodes.add(nodeVersion.getKey());
+                    }
+                }
+                latestNodes = orderMembers(latestNodes);
+                latestNodes.add(0, latestNode);
+                content = hedgedFetch(latestNodes, node -> node.quorumReadBytes(fileName));
             } else {
-                TTransport transport = new TSocket(latestNode.address, latestNode.port);
-                transport.open();
-                TProtocol protocol = new TBinaryProtocol(transport);
-                NodeService.Client client = new NodeService.Client(protocol);
-                content = client.quorumRead(fileName);
-                transport.close();
+                content = pool.call(latestNode, client -> client.quorumReadBytes(fileName));
             }
             return content;
         } catch (DFSError e) {
@@ -348,126 +695,1561 @@ public class NodeHandler implements NodeService.Iface {
         }
     }
 
-    @Override
-    public Map<String, Integer> coordLS() throws TException {
-        /* using a read quorum - contacting every node would be inefficient, and we know
-           a read quorum is guaranteed to have the latest version of any file in the DFS. */
+    /**
+     * read in a single round trip. every quorum member replies with its version, and with its
+     * content only if it is newer than this node's replica. the coordinator is always part of
+     * the quorum, so if nobody is newer it serves its own replica.
+     *
+     * @param fileName
+     * @return
+     * @throws TException
+     */
+    private ByteBuffer coordReadVersioned(String fileName, int readVotes) throws TException {
+        List<Node> quorum = createLocalQuorum(readVotes);
+        int localVersion = quorumVersion(fileName);
+        VersionedData latest = new VersionedData(localVersion);
         try {
-            System.out.println("coordLS() called.");
-            List<Node> quorum = createQuorum(readQuorumSize);
-            Map<String, Integer> lsResult = new HashMap<>(nameVersionMap);
-            // get the latest version of each file
-            for (String fileName : nameVersionMap.keySet()) {
-                int maxVersion = 0;
-                int version;
-                for (Node node : quorum) {
-                    if (node.equals(thisNode)) {
-                        // if this is the coordinator
-                        version = quorumVersion(fileName);
-                    } else {
-                        TTransport transport = new TSocket(node.address, node.port);
-                        transport.open();
-                        TProtocol protocol = new TBinaryProtocol(transport);
-                        NodeService.Client client = new NodeService.Client(protocol);
-                        version = client.quorumVersion(fileName);
-                        transport.close();
-                    }
-                    if (version > maxVersion) {
-                        maxVersion = version;
-                    }
+            for (VersionedData reply : fanOut(quorum, readVotes,
+                    node -> node.quorumReadVersionedBytes(fileName, localVersion)).values()) {
+                if (reply.version > latest.version) {
+                    latest = reply;
                 }
-                lsResult.put(fileName, maxVersion);
             }
-            return lsResult;
         } catch (DFSError e) {
             throw e;
         } catch (TException e) {
+            e.printStackTrace();
             throw new DFSError("DFS Node Failure.");
         }
+
+        if (latest.version == 0) {
+            // if the file doesn't absolutely exist
+            throw new DFSError(String.format("File %s doesn't exist in the DFS. Run 'ls' to see the list of files.", fileName));
+        }
+        if (latest.isSetContent()) {
+            versionedReadsRemote.incrementAndGet();
+            return latest.content;
+        }
+        // this node already has the latest version
+        versionedReadsLocal.incrementAndGet();
+        return quorumReadBytes(fileName);
     }
 
-    private List<Node> createQuorum(int quorumSize) {
-        List<Node> quorum = new ArrayList<>(nodes);
-        Collections.shuffle(quorum);
-        return quorum.subList(0, quorumSize);
+    @Override
+    public String openUpload(String fileName) throws TException {
+        // pass on this call to the file's coordinator and relay the result back
+        System.out.printf("openUpload(%s) called.\n", fileName);
+        Node owner = ring.owner(fileName);
+        if (owner.equals(thisNode)) {
+            // if this is the coordinator
+            return coordOpenUpload(fileName);
+        }
+        return pool.callOnce(owner, client -> client.coordOpenUpload(fileName));
     }
 
-    private void synchronize() {
-        /* using a read quorum - contacting every node would be inefficient, and we know
-           a read quorum is guaranteed to have the latest version of any file in the DFS. */
-        while (true) {
-            try {
-                // run till this program runs, sleeping for a delay after each run
-                Thread.sleep(Integer.parseInt(prop.getProperty("node.syncdelay")));
-                List<Node> quorum = createQuorum(readQuorumSize);
-                System.out.println("synchronize() begins...");
-                for (String fileName : nameVersionMap.keySet()) {
-                    // all writes must be sequential - even synchronize.
-                    Lock replicaLock = nameLockMap.get(fileName);
-                    replicaLock.lock();
-                    try {
-                        // find the node which has the latest version of this file in the read quorum
-                        int maxVersion = 0;
-                        int version;
-                        Node latestNode = quorum.get(0);
-                        Map<Node, Integer> nodeVersionMapping = new HashMap<>();
-                        for (Node node : quorum) {
-                            if (node.equals(thisNode)) {
-                                // if this is the same node
-                                version = quorumVersion(fileName);
-                            } else {
-                                TTransport transport = new TSocket(node.address, node.port);
-                                transport.open();
-                                TProtocol protocol = new TBinaryProtocol(transport);
-                                NodeService.Client client = new NodeService.Client(protocol);
-                                version = client.quorumVersion(fileName);
-                                transport.close();
-                            }
-                            nodeVersionMapping.put(node, version);
-                            if (version > maxVersion) {
-                                maxVersion = version;
-                                latestNode = node;
-                            }
-                        }
+    @Override
+    public void writeChunk(String fileName, String uploadId, long offset, ByteBuffer data) throws TException {
+        Node owner = ring.owner(fileName);
+        if (owner.equals(thisNode)) {
+            // if this is the coordinator
+            coordWriteChunk(fileName, uploadId, offset, data);
+        } else {
+            pool.call(owner, client -> {
+                client.coordWriteChunk(fileName, uploadId, offset, data);
+                return null;
+            });
+        }
+    }
 
-                        // get the contents of the latest file
-                        String latestContent;
-                        if (latestNode.equals(thisNode)) {
-                            // if this is the same node
-                            latestContent = quorumRead(fileName);
-                        } else {
-                            TTransport transport = new TSocket(latestNode.address, latestNode.port);
-                            transport.open();
-                            TProtocol protocol = new TBinaryProtocol(transport);
-                            NodeService.Client client = new NodeService.Client(protocol);
-                            latestContent = client.quorumRead(fileName);
-                            transport.close();
-                        }
+    @Override
+    public boolean commitUpload(String fileName, String uploadId) throws TException {
+        System.out.printf("commitUpload(%s) called.\n", fileName);
+        Node owner = ring.owner(fileName);
+        if (owner.equals(thisNode)) {
+            // if this is the coordinator
+            return coordCommitUpload(fileName, uploadId);
+        }
+        return pool.callOnce(owner, client -> client.coordCommitUpload(fileName, uploadId));
+    }
 
-                        // write this latest content to every node that is stale
-                        for (Node node : nodes) {
-                            if (!nodeVersionMapping.containsKey(node) || nodeVersionMapping.get(node) < maxVersion) {
-                                if (node == thisNode) {
-                                    // if this is the same node
-                                    quorumWrite(fileName, latestContent, maxVersion);
-                                } else {
-                                    TTransport transport = new TSocket(node.address, node.port);
-                                    transport.open();
-                                    TProtocol protocol = new TBinaryProtocol(transport);
-                                    NodeService.Client client = new NodeService.Client(protocol);
-                                    client.quorumWrite(fileName, latestContent, maxVersion);
-                                    transport.close();
-                                }
-                            }
-                        }
-                    } finally {
-                        replicaLock.unlock();
-                    }
-                }
-                System.out.println("synchronize() ends...");
-            } catch (InterruptedException | TException e) {
-                System.out.println("synchronize() failed.");
-                e.printStackTrace();
+    @Override
+    public ContentChunk readChunk(String fileName, int version, long offset, int length) throws TException {
+        if (length < 0) {
+            throw new DFSError(String.format("Can't read %d bytes of File %s.", length, fileName));
+        }
+        ContentChunk chunk;
+        Node owner = ring.owner(fileName);
+        if (owner.equals(thisNode)) {
+            // if this is the coordinator
+            chunk = coordReadChunk(fileName, version, offset, length);
+        } else {
+            chunk = pool.call(owner, client -> client.coordReadChunk(fileName, version, offset, length));
+        }
+        // a compressed file comes as a whole frame, whatever part was asked for
+        return codec.decode(chunk, offset, length);
+    }
+
+    @Override
+    public ContentChunk readRange(String fileName, long offset, int length) throws TException {
+        // the first chunk of a chunked read, without the chunks after it
+        System.out.printf("readRange(%s, %d, %d) invoked.\n", fileName, offset, length);
+        return readChunk(fileName, 0, offset, length);
+    }
+
+    /**
+     * start an upload, staged on this node until it is committed.
+     *
+     * @param fileName
+     * @return id of the upload, to pass to the chunk writes and the commit
+     * @throws TException
+     */
+    @Override
+    public String coordOpenUpload(String fileName) throws TException {
+        if (!ring.owner(fileName).equals(thisNode)) {
+            throw new DFSError(String.format("This node doesn't coordinate %s.", fileName));
+        }
+        String uploadId = UUID.randomUUID().toString();
+        openUploads.open(uploadId, fileName);
+        return uploadId;
+    }
+
+    @Override
+    public void coordWriteChunk(String fileName, String uploadId, long offset, ByteBuffer data) throws TException {
+        try {
+            openUploads.get(uploadId, fileName).staged.write(offset, data);
+            openUploads.staged(data.remaining());
+        } catch (IOException e) {
+            e.printStackTrace();
+            throw new DFSError(String.format("Error staging File %s", fileName));
+        }
+    }
+
+    /**
+     * make an upload the next version of its file, on a write quorum, all at once.
+     *
+     * @param fileName
+     * @param uploadId
+     * @return whether the file was created
+     * @throws TException
+     */
+    @Override
+    public boolean coordCommitUpload(String fileName, String uploadId) throws TException {
+        System.out.printf("coordCommitUpload(%s) called.\n", fileName);
+        Uploads.Upload upload = openUploads.get(uploadId, fileName);
+        quorums.countWrite();
+        fileLocks.lock(fileName);
+        int writeVotes = quorums.beginWrite();
+        try {
+            ByteBuffer whole = wholeUpload(fileName, upload.staged);
+            boolean created = whole != null ? writeRound(fileName, whole, 1, writeVotes)
+                    : commitRound(fileName, uploadId, upload.staged, writeVotes);
+            openUploads.remove(uploadId);
+            upload.staged.abort();
+            return created;
+        } catch (DFSError e) {
+            throw e;
+        } catch (TException e) {
+            e.printStackTrace();
+            throw new DFSError("DFS Node Failure.");
+        } finally {
+            quorums.endWrite();
+            fileLocks.unlock(fileName);
+        }
+    }
+
+    /**
+     * uploads small enough to be compressed are written whole, like a write, and so are the ones
+     * that start like compressed content, they can only be stored compressed.
+     *
+     * @param fileName
+     * @param staged
+     * @return the whole staged content, null if it is committed a chunk at a time
+     * @throws DFSError
+     */
+    private ByteBuffer wholeUpload(String fileName, ReplicaStore.StagedContent staged) throws DFSError {
+        try {
+            boolean whole = codec.compresses(staged.size());
+            if (!whole && ContentCodec.isEncoded(staged.read(0, ContentCodec.HEADER))) {
+                if (staged.size() > codec.maxSize) {
+                    throw new DFSError(String.format("Uploads of more than %d bytes can't start with the bytes compressed content starts with.", codec.maxSize));
+                }
+                whole = true;
+            }
+            return whole ? staged.read(0, (int) staged.size()) : null;
+        } catch (IOException e) {
+            e.printStackTrace();
+            throw new DFSError(String.format("Error reading staged File %s", fileName));
+        }
+    }
+
+    /**
+     * one version round on a write quorum, then the staged content streamed to the nodes that
+     * replied, a chunk at a time, and committed there as the next version. the replicas only
+     * make the content visible on commit, so a failed round leaves every file as it was. with
+     * the file lock held.
+     *
+     * @param fileName
+     * @param uploadId
+     * @param staged
+     * @param writeVotes
+     * @return whether the file was created
+     * @throws TException
+     */
+    private boolean commitRound(String fileName, String uploadId, ReplicaStore.StagedContent staged, int writeVotes)
+            throws TException {
+        if (versionCache != null) {
+            // reads go through the quorum until the new version is in place
+            versionCache.invalidate(fileName);
+        }
+        Map<Node, Integer> versions = fanOut(createQuorum(writeVotes), writeVotes, node -> node.quorumVersion(fileName));
+        int newVersion = Collections.max(versions.values()) + 1;
+        // every chunk has to get to the same nodes, the ones that commit it
+        List<Node> members = new ArrayList<>(versions.keySet());
+        long size = staged.size();
+        if (dedupChunker != null) {
+            Map<Node, Boolean> committed = offerStaged(fileName, staged, newVersion, members);
+            if (versionCache != null) {
+                versionCache.record(fileName, newVersion, committed.keySet());
+            }
+            return !committed.containsValue(false);
+        }
+        for (long offset = 0; offset < size; offset += chunkSize) {
+            ByteBuffer chunk;
+            try {
+                chunk = staged.read(offset, chunkSize);
+            } catch (IOException e) {
+                e.printStackTrace();
+                throw new DFSError(String.format("Error reading staged File %s", fileName));
+            }
+            long chunkOffset = offset;
+            fanOutAll(members, node -> {
+                node.quorumWriteChunk(fileName, uploadId, chunkOffset, chunk);
+                return null;
+            });
+        }
+
+        // the file is only new if it was created everywhere
+        boolean result = true;
+        Map<Node, Boolean> committed = fanOutAll(members, node -> node.quorumCommit(fileName, uploadId, newVersion, size));
+        for (boolean fileCreated : committed.values()) {
+            result &= fileCreated;
+        }
+        if (versionCache != null) {
+            versionCache.record(fileName, newVersion, committed.keySet());
+        }
+        return result;
+    }
+
+    /**
+     * offer staged content to the members as a manifest, in rounds like the chunks of a commit
+     * round: the manifest, then the chunks any member is missing, up to chunk.size bytes per
+     * round, and the manifest again along with the last of them. the chunks are read from the
+     * staged content here rather than in the calls, a call may be cancelled for being late.
+     *
+     * @param fileName
+     * @param staged
+     * @param version
+     * @param members
+     * @return whether the file was created, per member
+     * @throws TException
+     */
+    private Map<Node, Boolean> offerStaged(String fileName, ReplicaStore.StagedContent staged, int version, List<Node> members)
+            throws TException {
+        List<String> hashes = new ArrayList<>();
+        // where every chunk is in the staged content
+        Map<String, long[]> places = new HashMap<>();
+        try {
+            dedupChunker.split(staged, (hash, offset, chunk) -> {
+                hashes.add(hash);
+                places.putIfAbsent(hash, new long[]{offset, chunk.remaining()});
+            });
+        } catch (IOException e) {
+            e.printStackTrace();
+            throw new DFSError(String.format("Error reading staged File %s", fileName));
+        }
+        manifestsOffered.addAndGet(members.size());
+        offeredBytes.addAndGet(staged.size() * members.size());
+        int chunksPerCall = Math.max(1, chunkSize / dedupChunker.maxSize);
+        Map<Node, Boolean> created = new HashMap<>();
+        Map<Node, ManifestReply> replies = fanOutAll(members, node -> node.quorumWriteManifest(fileName, version, hashes, Collections.emptyMap()));
+        // a chunk that was there can still be collected before the manifest refers to it, so try a few times
+        for (int attempt = 0; ; attempt++) {
+            // members that committed are done, the others get every chunk any of them is missing
+            List<Node> pending = new ArrayList<>();
+            Set<String> missing = new LinkedHashSet<>();
+            for (Map.Entry<Node, ManifestReply> reply : replies.entrySet()) {
+                if (reply.getValue().committed) {
+                    created.put(reply.getKey(), reply.getValue().created);
+                } else {
+                    pending.add(reply.getKey());
+                    missing.addAll(reply.getValue().missing);
+                }
+            }
+            if (pending.isEmpty()) {
+                return created;
+            }
+            if (attempt == 3) {
+                throw new DFSError(String.format("Chunks of File %s Version %d keep going missing.", fileName, version));
+            }
+            List<String> wanted = new ArrayList<>(missing);
+            replies = new HashMap<>();
+            for (int start = 0; start == 0 || start < wanted.size(); start += chunksPerCall) {
+                Map<String, ByteBuffer> chunks = new HashMap<>();
+                try {
+                    for (String hash : wanted.subList(start, Math.min(wanted.size(), start + chunksPerCall))) {
+                        long[] place = places.get(hash);
+                        if (place == null) {
+                            throw new DFSError(String.format("Chunk %s isn't part of File %s.", hash, fileName));
+                        }
+                        chunks.put(hash, staged.read(place[0], (int) place[1]));
+                        sentChunkBytes.addAndGet(place[1] * pending.size());
+                    }
+                } catch (IOException e) {
+                    e.printStackTrace();
+                    throw new DFSError(String.format("Error reading staged File %s", fileName));
+                }
+                if (start + chunksPerCall >= wanted.size()) {
+                    replies = fanOutAll(pending, node -> node.quorumWriteManifest(fileName, version, hashes, chunks));
+                } else {
+                    fanOutAll(pending, node -> {
+                        node.quorumPutChunks(chunks);
+                        return null;
+                    });
+                }
+            }
+        }
+    }
+
+    /**
+     * offer a version of a file to a node as a manifest, then put the chunks it says it's
+     * missing, up to chunk.size bytes per call, the last of them along with the manifest again
+     * to commit it.
+     *
+     * @param node
+     * @param fileName
+     * @param version
+     * @param hashes
+     * @param size of the content, for the metrics
+     * @param source
+     * @return whether the file was created
+     * @throws TException
+     */
+    private boolean offerManifest(NodeService.Iface node, String fileName, int version, List<String> hashes, long size,
+                                  ChunkSource source) throws TException {
+        manifestsOffered.incrementAndGet();
+        offeredBytes.addAndGet(size);
+        int chunksPerCall = Math.max(1, chunkSize / dedupChunker.maxSize);
+        ManifestReply reply = node.quorumWriteManifest(fileName, version, hashes, Collections.emptyMap());
+        // a chunk that was there can still be collected before the manifest refers to it, so try a few times
+        for (int attempt = 0; !reply.committed; attempt++) {
+            if (attempt == 3) {
+                throw new DFSError(String.format("Chunks of File %s Version %d keep going missing.", fileName, version));
+            }
+            List<String> missing = reply.missing;
+            for (int start = 0; start < missing.size(); start += chunksPerCall) {
+                Map<String, ByteBuffer> chunks = source.chunks(missing.subList(start, Math.min(missing.size(), start + chunksPerCall)));
+                for (ByteBuffer chunk : chunks.values()) {
+                    sentChunkBytes.addAndGet(chunk.remaining());
+                }
+                if (start + chunksPerCall >= missing.size()) {
+                    reply = node.quorumWriteManifest(fileName, version, hashes, chunks);
+                } else {
+                    node.quorumPutChunks(chunks);
+                }
+            }
+        }
+        return reply.created;
+    }
+
+    private static Map<String, ByteBuffer> pick(Map<String, ByteBuffer> chunks, List<String> hashes) throws DFSError {
+        Map<String, ByteBuffer> picked = new HashMap<>();
+        for (String hash : hashes) {
+            ByteBuffer chunk = chunks.get(hash);
+            if (chunk == null) {
+                throw new DFSError(String.format("Chunk %s isn't part of the content.", hash));
+            }
+            picked.put(hash, chunk);
+        }
+        return picked;
+    }
+
+    /**
+     * read a chunk of the latest version, or of the given version if the read started earlier.
+     * the first chunk goes through the version cache and versioned reads like a whole file read,
+     * the others ask a read quorum for the version, unless this node has the given version.
+     *
+     * @param fileName
+     * @param version 0 on the first chunk, the version it returned on the following ones
+     * @param offset negative counts from the end
+     * @param length at most chunk.size bytes are returned
+     * @return
+     * @throws TException
+     */
+    @Override
+    public ContentChunk coordReadChunk(String fileName, int version, long offset, int length) throws TException {
+        System.out.printf("coordReadChunk(%s, %d, %d) called.\n", fileName, version, offset);
+        if (length < 0) {
+            throw new DFSError(String.format("Can't read %d bytes of File %s.", length, fileName));
+        }
+        VersionCache.Entry cached = version > 0 && versionCache != null ? versionCache.get(fileName) : null;
+        if (cached != null && cached.version == version && store.version(fileName) == version) {
+            // still the newest version, or a write would have taken it out of the cache, so the
+            // local replica can serve it. without the cache only a quorum can tell
+            try {
+                return quorumReadChunk(fileName, version, offset, length);
+            } catch (DFSError e) {
+                // a new version came in meanwhile, the quorum tells
+            }
+        }
+        if (version == 0) {
+            quorums.countRead();
+        }
+        if (version > 0 || versionCache == null) {
+            return quorumCoordReadChunk(fileName, version, offset, length);
+        }
+        // the first chunk is read like a whole file, the ones after it are of a known version
+        long start = System.nanoTime();
+        ContentChunk chunk = cachedReadChunk(fileName, offset, length);
+        if (chunk != null) {
+            versionCache.hits.incrementAndGet();
+            versionCache.hitNanos.addAndGet(System.nanoTime() - start);
+            return chunk;
+        }
+        try {
+            return quorumCoordReadChunk(fileName, version, offset, length);
+        } finally {
+            versionCache.misses.incrementAndGet();
+            versionCache.missNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * same as cachedRead, for a part of the file.
+     *
+     * @param fileName
+     * @param offset
+     * @param length
+     * @return the part, null if the read has to go through a quorum
+     */
+    private ContentChunk cachedReadChunk(String fileName, long offset, int length) {
+        VersionCache.Entry cached = versionCache.get(fileName);
+        if (cached == null) {
+            return null;
+        }
+        Node holder = thisNode;
+        if (!cached.holders.contains(thisNode)) {
+            List<Node> holders = new ArrayList<>(cached.holders);
+            holder = holders.get(ThreadLocalRandom.current().nextInt(holders.size()));
+        }
+        try {
+            ContentChunk reply;
+            if (holder.equals(thisNode)) {
+                // if this is the coordinator
+                reply = quorumReadVersionedChunk(fileName, cached.version - 1, offset, length);
+            } else {
+                reply = pool.call(holder, client -> client.quorumReadVersionedChunk(fileName, cached.version - 1, offset, length));
+            }
+            if (reply.isSetData()) {
+                return reply;
+            }
+            System.out.printf("Node %s:%d is behind on %s.\n", holder.address, holder.port, fileName);
+        } catch (TException e) {
+            System.out.printf("Node %s:%d failed: %s\n", holder.address, holder.port, e);
+        }
+        versionCache.dropHolder(fileName, cached.version, holder);
+        return null;
+    }
+
+    private ContentChunk quorumCoordReadChunk(String fileName, int version, long offset, int length) throws TException {
+        int readVotes = quorums.beginRead();
+        try {
+            if (version == 0 && versionedRead) {
+                return coordReadVersionedChunk(fileName, offset, length, readVotes);
+            }
+            Map<Node, Integer> versions = fanOut(createQuorum(readVotes), readVotes, node -> node.quorumVersion(fileName));
+            int maxVersion = Collections.max(versions.values());
+            if (maxVersion == 0) {
+                // if the file doesn't absolutely exist
+                throw new DFSError(String.format("File %s doesn't exist in the DFS. Run 'ls' to see the list of files.", fileName));
+            }
+            if (version > 0 && maxVersion != version) {
+                throw new DFSError(String.format("File %s changed to Version %d while being read, read it again.", fileName, maxVersion));
+            }
+            Node latestNode = thisNode;
+            if (versions.getOrDefault(thisNode, 0) != maxVersion) {
+                for (Map.Entry<Node, Integer> nodeVersion : versions.entrySet()) {
+                    if (nodeVersion.getValue() == maxVersion) {
+                        latestNode = nodeVersion.getKey();
+                    }
+                }
+            }
+            if (latestNode.equals(thisNode)) {
+                return quorumReadChunk(fileName, maxVersion, offset, length);
+            }
+            return pool.call(latestNode, client -> client.quorumReadChunk(fileName, maxVersion, offset, length));
+        } catch (DFSError e) {
+            throw e;
+        } catch (TException e) {
+            e.printStackTrace();
+            throw new DFSError("DFS Node Failure.");
+        } finally {
+            quorums.endRead();
+        }
+    }
+
+    /**
+     * same as coordReadVersioned, for a part of the file.
+     *
+     * @param fileName
+     * @param offset
+     * @param length
+     * @param readVotes
+     * @return
+     * @throws TException
+     */
+    private ContentChunk coordReadVersionedChunk(String fileName, long offset, int length, int readVotes) throws TException {
+        List<Node> quorum = createLocalQuorum(readVotes);
+        int localVersion = quorumVersion(fileName);
+        ContentChunk latest = new ContentChunk();
+        latest.setVersion(localVersion);
+        for (ContentChunk reply : fanOut(quorum, readVotes,
+                node -> node.quorumReadVersionedChunk(fileName, localVersion, offset, length)).values()) {
+            if (reply.version > latest.version) {
+                latest = reply;
+            }
+        }
+        if (latest.version == 0) {
+            // if the file doesn't absolutely exist
+            throw new DFSError(String.format("File %s doesn't exist in the DFS. Run 'ls' to see the list of files.", fileName));
+        }
+        if (latest.isSetData()) {
+            versionedReadsRemote.incrementAndGet();
+            return latest;
+        }
+        // this node already has the latest version
+        versionedReadsLocal.incrementAndGet();
+        return quorumReadChunk(fileName, 0, offset, length);
+    }
+
+    @Override
+    public void quorumWriteChunk(String fileName, String uploadId, long offset, ByteBuffer data) throws TException {
+        try {
+            stagedUploads.open(uploadId, fileName).staged.write(offset, data);
+            stagedUploads.staged(data.remaining());
+        } catch (IOException e) {
+            e.printStackTrace();
+            throw new DFSError(String.format("Error staging File %s", fileName));
+        }
+    }
+
+    @Override
+    public boolean quorumCommit(String fileName, String uploadId, int version, long size) throws TException {
+        System.out.printf("quorumCommit(%s, %d) called.\n", fileName, version);
+        // an empty file never had a chunk written, so there is nothing staged yet
+        Uploads.Upload upload;
+        try {
+            upload = size == 0 ? stagedUploads.open(uploadId, fileName) : stagedUploads.get(uploadId, fileName);
+        } catch (DFSError e) {
+            if (store.version(fileName) >= version) {
+                // committed already, this is the same commit once more
+                System.out.printf("File %s already on same or newer version, skip write.\n", fileName);
+                return false;
+            }
+            throw e;
+        }
+        if (upload.staged.size() != size) {
+            throw new DFSError(String.format("Only %d of %d bytes of File %s are staged on this node.", upload.staged.size(), size, fileName));
+        }
+        try {
+            int currentVersion = upload.staged.commit(version);
+            stagedUploads.remove(uploadId);
+            if (currentVersion >= version) {
+                // if already on a newer or same version, skip write
+                System.out.printf("File %s already on same or newer version, skip write.\n", fileName);
+                return false;
+            }
+            // if this is the first version of the file
+            return currentVersion == 0;
+        } catch (IOException e) {
+            e.printStackTrace();
+            throw new DFSError(String.format("Error writing to File %s Version %d", fileName, version));
+        }
+    }
+
+    /**
+     * @param fileName
+     * @param version 0 for whatever version this node has
+     * @param offset negative counts from the end
+     * @param length at most chunk.size bytes are returned
+     * @return
+     * @throws TException
+     */
+    @Override
+    public ContentChunk quorumReadChunk(String fileName, int version, long offset, int length) throws TException {
+        if (length < 0) {
+            throw new DFSError(String.format("Can't read %d bytes of File %s.", length, fileName));
+        }
+        ContentChunk chunk;
+        try {
+            chunk = store.readChunk(fileName, offset, Math.min(length, chunkSize));
+        } catch (IOException e) {
+            e.printStackTrace();
+            throw new DFSError(String.format("Error reading from File %s", fileName));
+        }
+        if (chunk == null) {
+            throw new DFSError(String.format("File %s doesn't exist on this node.", fileName));
+        }
+        if (chunk.data.remaining() < chunk.size && chunk.size <= codec.maxFrameSize) {
+            // a part of a compressed file can only be cut out once it's decompressed, send it all
+            chunk = wholeFrame(fileName, offset, chunk);
+        }
+        if (version > 0 && chunk.version != version) {
+            throw new DFSError(String.format("File %s is on Version %d on this node, not %d.", fileName, chunk.version, version));
+        }
+        return chunk;
+    }
+
+    /**
+     * @param fileName
+     * @param offset where the chunk was read from
+     * @param chunk a part of the file
+     * @return the whole file if it is compressed, the chunk otherwise
+     * @throws DFSError
+     */
+    private ContentChunk wholeFrame(String fileName, long offset, ContentChunk chunk) throws DFSError {
+        try {
+            ContentChunk head = ReplicaStore.rangeStart(offset, chunk.size) == 0 && chunk.data.remaining() >= ContentCodec.HEADER
+                    ? chunk : store.readChunk(fileName, 0, ContentCodec.HEADER);
+            if (head == null || !ContentCodec.isEncoded(head.data)) {
+                return chunk;
+            }
+            ContentChunk whole = store.readChunk(fileName, 0, codec.maxFrameSize);
+            return whole != null ? whole : chunk;
+        } catch (IOException e) {
+            e.printStackTrace();
+            throw new DFSError(String.format("Error reading from File %s", fileName));
+        }
+    }
+
+    @Override
+    public ContentChunk quorumReadVersionedChunk(String fileName, int minVersion, long offset, int length) throws TException {
+        int version = quorumVersion(fileName);
+        if (version <= minVersion) {
+            // same as quorumVersion, nothing else to do
+            ContentChunk chunk = new ContentChunk();
+            chunk.setVersion(version);
+            return chunk;
+        }
+        // the store reads version and content together, a write may have happened in between
+        return quorumReadChunk(fileName, 0, offset, length);
+    }
+
+    @Override
+    public ManifestReply quorumWriteManifest(String fileName, int version, List<String> hashes, Map<String, ByteBuffer> chunks)
+            throws TException {
+        System.out.printf("quorumWriteManifest(%s, %d) called.\n", fileName, version);
+        ChunkReplicaStore chunkStore = chunkStore();
+        checkHashes(hashes);
+        ManifestReply reply = new ManifestReply(false, false, new ArrayList<>());
+        try {
+            putChunks(chunkStore, chunks);
+            int currentVersion = chunkStore.writeManifest(fileName, version, hashes);
+            reply.setCommitted(true);
+            if (currentVersion >= version) {
+                // if already on a newer or same version, skip write
+                System.out.printf("File %s already on same or newer version, skip write.\n", fileName);
+            } else {
+                // if this is the first version of the file
+                reply.setCreated(currentVersion == 0);
+            }
+        } catch (ChunkReplicaStore.MissingChunksException e) {
+            reply.setMissing(e.hashes);
+        } catch (IOException e) {
+            e.printStackTrace();
+            throw new DFSError(String.format("Error writing to File %s Version %d", fileName, version));
+        }
+        return reply;
+    }
+
+    @Override
+    public void quorumPutChunks(Map<String, ByteBuffer> chunks) throws TException {
+        try {
+            putChunks(chunkStore(), chunks);
+        } catch (IOException e) {
+            e.printStackTrace();
+            throw new DFSError("Error storing chunks.");
+        }
+    }
+
+    private static void putChunks(ChunkReplicaStore chunkStore, Map<String, ByteBuffer> chunks) throws IOException {
+        for (Map.Entry<String, ByteBuffer> chunk : chunks.entrySet()) {
+            chunkStore.putChunk(chunk.getKey(), chunk.getValue());
+        }
+    }
+
+    @Override
+    public ChunkManifest quorumManifest(String fileName) throws TException {
+        ChunkManifest manifest = chunkStore().manifest(fileName);
+        if (manifest == null) {
+            throw new DFSError(String.format("File %s doesn't exist on this node.", fileName));
+        }
+        return manifest;
+    }
+
+    @Override
+    public Map<String, ByteBuffer> quorumGetChunks(List<String> hashes) throws TException {
+        ChunkReplicaStore chunkStore = chunkStore();
+        checkHashes(hashes);
+        Map<String, ByteBuffer> chunks = new HashMap<>();
+        try {
+            for (String hash : hashes) {
+                ByteBuffer chunk = chunkStore.chunk(hash);
+                if (chunk == null) {
+                    throw new DFSError(String.format("Chunk %s isn't on this node.", hash));
+                }
+                chunks.put(hash, chunk);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            throw new DFSError("Error reading chunks.");
+        }
+        return chunks;
+    }
+
+    private ChunkReplicaStore chunkStore() throws DFSError {
+        if (!(store instanceof ChunkReplicaStore)) {
+            throw new DFSError("This node doesn't keep files in chunks, set store.engine = chunk.");
+        }
+        return (ChunkReplicaStore) store;
+    }
+
+    private static void checkHashes(List<String> hashes) throws DFSError {
+        for (String hash : hashes) {
+            if (!ContentChunker.isHash(hash)) {
+                throw new DFSError(String.format("%s isn't a chunk hash.", hash));
+            }
+        }
+    }
+
+    @Override
+    public int append(String fileName, ByteBuffer data) throws TException {
+        System.out.printf("append(%s) invoked.\n", fileName);
+        return forwardPatch(fileName, -1, -1, data);
+    }
+
+    @Override
+    public int patch(String fileName, int baseVersion, long offset, ByteBuffer data) throws TException {
+        System.out.printf("patch(%s) invoked.\n", fileName);
+        if (baseVersion < 0 || offset < 0) {
+            throw new DFSError("A patch needs the version it applies to and where it starts.");
+        }
+        return forwardPatch(fileName, baseVersion, offset, data);
+    }
+
+    private int forwardPatch(String fileName, int baseVersion, long offset, ByteBuffer data) throws TException {
+        // pass on this call to the file's coordinator and relay the result back
+        Node owner = ring.owner(fileName);
+        if (owner.equals(thisNode)) {
+            // if this is the coordinator
+            return coordPatch(fileName, baseVersion, offset, data);
+        }
+        return pool.callOnce(owner, client -> client.coordPatch(fileName, baseVersion, offset, data));
+    }
+
+    @Override
+    public int coordPatch(String fileName, int baseVersion, long offset, ByteBuffer data) throws TException {
+        System.out.printf("coordPatch(%s) called.\n", fileName);
+        if (!ring.owner(fileName).equals(thisNode)) {
+            // writes to a file are only serialized by the coordinator owning it
+            throw new DFSError(String.format("This node doesn't coordinate %s.", fileName));
+        }
+        quorums.countWrite();
+        fileLocks.lock(fileName);
+        int writeVotes = quorums.beginWrite();
+        try {
+            return patchRound(fileName, baseVersion, offset, data, writeVotes);
+        } catch (DFSError e) {
+            throw e;
+        } catch (TException e) {
+            e.printStackTrace();
+            throw new DFSError("DFS Node Failure.");
+        } finally {
+            quorums.endWrite();
+            fileLocks.unlock(fileName);
+        }
+    }
+
+    /**
+     * one version round on a write quorum, then only the patch sent to its members, which apply
+     * it to the version they have. members behind the latest version can't, they get the whole
+     * new version from one that could. with the file lock held.
+     *
+     * @param fileName
+     * @param baseVersion the version the patch applies to, -1 for the latest
+     * @param offset where the patch starts, -1 for the end of the file
+     * @param data
+     * @param writeVotes
+     * @return the new version
+     * @throws TException
+     */
+    private int patchRound(String fileName, int baseVersion, long offset, ByteBuffer data, int writeVotes) throws TException {
+        Map<Node, Integer> versions = null;
+        if (versionCache != null) {
+            VersionCache.Entry cached = versionCache.get(fileName);
+            // reads go through the quorum until the new version is in place
+            versionCache.invalidate(fileName);
+            int holderVotes = 0;
+            for (Node holder : cached != null ? cached.holders : Collections.<Node>emptySet()) {
+                holderVotes += quorumConfig.votes(holder);
+            }
+            if (holderVotes >= writeVotes) {
+                // a quorum made of nodes known to be on the latest version can all take the patch,
+                // while any other quorum may have members that missed the last writes
+                try {
+                    versions = fanOut(contacted(orderMembers(new ArrayList<>(cached.holders)), writeVotes), writeVotes,
+                            node -> node.quorumVersion(fileName));
+                } catch (TException e) {
+                    System.out.printf("Holders of File %s didn't reach a quorum, asking any nodes: %s\n", fileName, e);
+                }
+            }
+        }
+        if (versions == null) {
+            versions = fanOut(createQuorum(writeVotes), writeVotes, node -> node.quorumVersion(fileName));
+        }
+        int latestVersion = Collections.max(versions.values());
+        if (baseVersion >= 0 && baseVersion != latestVersion) {
+            throw new DFSError(String.format("File %s is on Version %d, not %d.", fileName, latestVersion, baseVersion));
+        }
+        int newVersion = latestVersion + 1;
+        // every member has to end up with the new version, stale ones included
+        List<Node> members = new ArrayList<>(versions.keySet());
+        Map<Node, Integer> patched = fanOutAll(members, node -> node.quorumPatch(fileName, latestVersion, newVersion, offset, data));
+        Node patchedNode = null;
+        List<Node> staleNodes = new ArrayList<>();
+        List<Node> compressedNodes = new ArrayList<>();
+        for (Map.Entry<Node, Integer> previous : patched.entrySet()) {
+            if (previous.getValue() == -1) {
+                compressedNodes.add(previous.getKey());
+            } else if (previous.getValue() != latestVersion && previous.getValue() < newVersion) {
+                staleNodes.add(previous.getKey());
+            } else if (patchedNode == null || previous.getKey().equals(thisNode)) {
+                patchedNode = previous.getKey();
+            }
+        }
+        if (!compressedNodes.isEmpty()) {
+            // the file is compressed, so it is patched here and written whole, uncompressed, which
+            // lets the replicas take the next patches themselves
+            ByteBuffer content = patchedContent(fileName, latestVersion, compressedNodes.get(0), offset, data);
+            staleNodes.addAll(compressedNodes);
+            fanOutAll(staleNodes, node -> node.quorumWriteBytes(fileName, content, newVersion));
+            patchRewrites.incrementAndGet();
+        } else if (!staleNodes.isEmpty()) {
+            // one of the members had the latest version, so someone was patched
+            if (dedupChunker != null) {
+                syncManifest(fileName, patchedNode, staleNodes);
+            } else {
+                syncContent(fileName, patchedNode, staleNodes);
+            }
+            patchFullCopies.addAndGet(staleNodes.size());
+        }
+        patches.incrementAndGet();
+        patchedBytes.addAndGet(data.remaining());
+        if (versionCache != null) {
+            versionCache.record(fileName, newVersion, members);
+        }
+        return newVersion;
+    }
+
+    /**
+     * @param fileName
+     * @param latestVersion
+     * @param latestNode a member on the latest version
+     * @param offset where the patch starts, -1 for the end of the file
+     * @param data
+     * @return the latest version with the patch applied, as it is stored
+     * @throws TException
+     */
+    private ByteBuffer patchedContent(String fileName, int latestVersion, Node latestNode, long offset, ByteBuffer data)
+            throws TException {
+        ByteBuffer base = ByteBuffer.allocate(0);
+        if (latestVersion > 0) {
+            ContentChunk latest;
+            if (latestNode.equals(thisNode)) {
+                // if this is the same node
+                latest = quorumReadChunk(fileName, latestVersion, 0, chunkSize);
+            } else {
+                latest = pool.call(latestNode, client -> client.quorumReadChunk(fileName, latestVersion, 0, chunkSize));
+            }
+            latest = codec.decode(latest, 0, chunkSize);
+            if (latest.data.remaining() < latest.size) {
+                // a large file the patch would make start like compressed content
+                throw new DFSError(String.format("Content of more than %d bytes can't start with the bytes compressed content starts with.", codec.maxSize));
+            }
+            base = latest.data;
+        }
+        long start = offset < 0 ? base.remaining() : offset;
+        if (start > base.remaining()) {
+            throw new DFSError(String.format("Error patching File %s Version %d: Offset %d is past the end of %s, %d bytes.",
+                    fileName, latestVersion + 1, start, fileName, base.remaining()));
+        }
+        ByteBuffer content = ByteBuffer.allocate((int) Math.max(base.remaining(), start + data.remaining()));
+        content.put(base.duplicate());
+        content.position((int) start);
+        content.put(data.duplicate());
+        content.position(0);
+        return codec.escape(content);
+    }
+
+    @Override
+    public int quorumPatch(String fileName, int baseVersion, int version, long offset, ByteBuffer data) throws TException {
+        System.out.printf("quorumPatch(%s, %d) called.\n", fileName, version);
+        try {
+            if (store.version(fileName) == baseVersion) {
+                ContentChunk head = baseVersion > 0 ? store.readChunk(fileName, 0, ContentCodec.HEADER) : null;
+                if (!ContentCodec.patchable(head, offset, data)) {
+                    // compressed, or would look compressed once patched, the coordinator rewrites it
+                    return -1;
+                }
+            }
+            return store.patch(fileName, baseVersion, offset, data, version);
+        } catch (IOException e) {
+            e.printStackTrace();
+            throw new DFSError(String.format("Error patching File %s Version %d: %s", fileName, version, e.getMessage()));
+        }
+    }
+
+    @Override
+    public Map<String, Integer> coordLS() throws TException {
+        /* using a read quorum - contacting every node would be inefficient, and we know
+           a read quorum is guaranteed to have the latest version of any file in the DFS. */
+        try {
+            System.out.println("coordLS() called.");
+            // the other coordinators may be on other quorum pairs, the largest read quorum overlaps
+            // the write quorums of all of them
+            int readVotes = quorums.largestRead();
+            List<Node> quorum = createQuorum(readVotes);
+            // one paged listing per node instead of one call per file and node
+            Map<String, Integer> lsResult = new HashMap<>();
+            for (Map<String, Integer> versions : fanOut(quorum, readVotes, this::allVersions).values()) {
+                for (Map.Entry<String, Integer> nameVersion : versions.entrySet()) {
+                    lsResult.merge(nameVersion.getKey(), nameVersion.getValue(), Math::max);
+                }
+            }
+            return lsResult;
+        } catch (DFSError e) {
+            throw e;
+        } catch (TException e) {
+            throw new DFSError("DFS Node Failure.");
+        }
+    }
+
+    /**
+     * fetch the whole file name to version map of a node, one page at a time.
+     *
+     * @param node
+     * @return
+     * @throws TException
+     */
+    private Map<String, Integer> allVersions(NodeService.Iface node) throws TException {
+        Map<String, Integer> versions = new HashMap<>();
+        String startAfter = "";
+        while (true) {
+            Map<String, Integer> page = node.quorumVersionPage(startAfter, versionPageSize);
+            versions.putAll(page);
+            if (page.size() < versionPageSize) {
+                return versions;
+            }
+            startAfter = Collections.max(page.keySet());
+        }
+    }
+
+    /**
+     * make the same call on all the given nodes at once and return as soon as the nodes that
+     * have replied hold enough votes for a quorum. the remaining calls are cancelled if they
+     * haven't started, and left to finish if they have. fails if too many nodes fail, or if not
+     * enough replies arrive within the quorum timeout.
+     *
+     * @param contacted nodes to call, the shortest run of them from the start with enough
+     *                  votes being the fixed quorum
+     * @param quorumVotes
+     * @param call
+     * @return replies keyed by node
+     * @throws TException
+     */
+    <T> Map<Node, T> fanOut(List<Node> contacted, int quorumVotes, NodeCall<T> call) throws TException {
+        return fanOut(contacted, quorumVotes, quorumConfig::votes, call);
+    }
+
+    /**
+     * same as fanOut, but every one of the nodes has to reply.
+     *
+     * @param contacted
+     * @param call
+     * @return replies keyed by node
+     * @throws TException
+     */
+    <T> Map<Node, T> fanOutAll(List<Node> contacted, NodeCall<T> call) throws TException {
+        return fanOut(contacted, contacted.size(), node -> 1, call);
+    }
+
+    private <T> Map<Node, T> fanOut(List<Node> contacted, int quorumVotes, ToIntFunction<Node> votes, NodeCall<T> call)
+            throws TException {
+        quorumRounds.incrementAndGet();
+        CompletionService<T> completionService = new ExecutorCompletionService<>(peerExecutor);
+        Map<Future<T>, Node> futures = new HashMap<>();
+        for (Node node : contacted) {
+            if (!node.equals(thisNode)) {
+                futures.put(completionService.submit(() -> timedCall(node, call)), node);
+            }
+        }
+        long deadline = System.currentTimeMillis() + quorumTimeout;
+        Map<Node, T> replies = new LinkedHashMap<>();
+        int repliedVotes = 0;
+        int pendingVotes = 0;
+        for (Node node : futures.values()) {
+            pendingVotes += votes.applyAsInt(node);
+        }
+        TException lastError = null;
+        List<Node> fixedQuorum = contacted.subList(0, fixedQuorumSize(contacted, quorumVotes, votes));
+        boolean fixedQuorumFailed = false;
+        try {
+            if (contacted.contains(thisNode)) {
+                // if this node is contacted, answer for it while the others are busy
+                try {
+                    replies.put(thisNode, timedCall(thisNode, call));
+                    repliedVotes += votes.applyAsInt(thisNode);
+                } catch (TException e) {
+                    quorumFailedReplies.incrementAndGet();
+                    fixedQuorumFailed |= fixedQuorum.contains(thisNode);
+                    lastError = e;
+                }
+            }
+            while (repliedVotes < quorumVotes) {
+                if (repliedVotes + pendingVotes < quorumVotes) {
+                    // too many failures, a quorum can't be reached anymore
+                    throw lastError != null ? lastError : new TException("Not enough votes among the nodes to reach a quorum.");
+                }
+                long remaining = deadline - System.currentTimeMillis();
+                Future<T> future = remaining > 0 ? completionService.poll(remaining, TimeUnit.MILLISECONDS) : null;
+                if (future == null) {
+                    System.out.printf("Only %d of %d votes replied within %d ms.\n", repliedVotes, quorumVotes, quorumTimeout);
+                    throw new TTransportException(TTransportException.TIMED_OUT, "Quorum timed out.");
+                }
+                Node node = futures.get(future);
+                pendingVotes -= votes.applyAsInt(node);
+                try {
+                    replies.put(node, future.get());
+                    repliedVotes += votes.applyAsInt(node);
+                } catch (ExecutionException e) {
+                    quorumFailedReplies.incrementAndGet();
+                    fixedQuorumFailed |= fixedQuorum.contains(node);
+                    System.out.printf("Node %s:%d failed: %s\n", node.address, node.port, e.getCause());
+                    lastError = e.getCause() instanceof TException ? (TException) e.getCause() : new TException(e.getCause());
+                }
+            }
+            if (fixedQuorumFailed) {
+                // a fixed quorum would have failed, the extra nodes saved this one
+                quorumSaves.incrementAndGet();
+            } else if (!replies.keySet().containsAll(fixedQuorum)) {
+                // a member of the fixed quorum was just slower than an extra node
+                quorumSpeedups.incrementAndGet();
+            }
+            return replies;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TException("Interrupted waiting for the quorum.", e);
+        } finally {
+            // nobody is waiting on the late responders anymore. the ones already running aren't
+            // interrupted, on a virtual thread that closes the socket under the call, so they
+            // finish and give their connection back to the pool
+            for (Future<T> future : futures.keySet()) {
+                if (future.cancel(false)) {
+                    quorumCancelled.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    /**
+     * make a call on the first node, and if it hasn't replied within the hedge delay, the same
+     * call on the second one too. the first reply wins. the slower call isn't cancelled, it is
+     * left to finish so the time the hedge saved can be measured. a node that fails, rather than
+     * being slow, is replaced by the next one right away, outside the hedge budget.
+     *
+     * @param candidates nodes that can answer the call equally well, the first one asked first
+     * @param call
+     * @return
+     * @throws TException
+     */
+    private <T> T hedgedFetch(List<Node> candidates, NodeCall<T> call) throws TException {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(quorumTimeout);
+        CompletionService<T> completionService = new ExecutorCompletionService<>(peerExecutor);
+        Future<T> primary = completionService.submit(() -> timedCall(candidates.get(0), call));
+        int pending = 1;
+        // the next candidate to ask
+        int next = 1;
+        boolean failedOver = false;
+        try {
+            Future<T> done = completionService.poll(Math.min(hedgePolicy.delayNanos(), deadline - start), TimeUnit.NANOSECONDS);
+            if (done == null && next < candidates.size() && hedgePolicy.tryHedge()) {
+                Node hedge = candidates.get(next++);
+                completionService.submit(() -> timedCall(hedge, call));
+                pending++;
+            }
+            TException lastError = null;
+            while (pending > 0) {
+                if (done == null) {
+                    done = completionService.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (done == null) {
+                        throw new TTransportException(TTransportException.TIMED_OUT, "Content fetch timed out.");
+                    }
+                }
+                pending--;
+                try {
+                    T result = done.get();
+                    long served = System.nanoTime() - start;
+                    if (done == primary || failedOver) {
+                        // a failed node saves no time to measure
+                        hedgePolicy.recordFetch(served, served);
+                    } else {
+                        // the hedge won, see how long the first node would have taken
+                        peerExecutor.submit(() -> {
+                            try {
+                                primary.get();
+                            } catch (InterruptedException | ExecutionException e) {
+                                // failing took this long, the hedge saved at least that
+                            }
+                            long primaryNanos = System.nanoTime() - start;
+                            hedgePolicy.recordFetch(primaryNanos, served);
+                            hedgePolicy.recordWin(primaryNanos - served);
+                        });
+                    }
+                    return result;
+                } catch (ExecutionException e) {
+                    lastError = e.getCause() instanceof TException ? (TException) e.getCause() : new TException(e.getCause());
+                    done = null;
+                    if (pending == 0 && next < candidates.size()) {
+                        // the other candidates are on the same version, ask the next one
+                        Node failover = candidates.get(next++);
+                        completionService.submit(() -> timedCall(failover, call));
+                        pending++;
+                        failedOver = true;
+                        hedgePolicy.recordFailover();
+                    }
+                }
+            }
+            throw lastError;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TException("Interrupted waiting for the content.", e);
+        }
+    }
+
+    /**
+     * make a call on a node and keep track of how long it took and whether it failed. an error
+     * reported by the node itself, like a missing file, still counts as a timely answer.
+     *
+     * @param node
+     * @param call
+     * @return
+     * @throws TException
+     */
+    private <T> T timedCall(Node node, NodeCall<T> call) throws TException {
+        long start = System.nanoTime();
+        try {
+            T result = node.equals(thisNode) ? call.call(this) : pool.call(node, call::call);
+            peerStats.success(node, System.nanoTime() - start);
+            return result;
+        } catch (DFSError e) {
+            peerStats.success(node, System.nanoTime() - start);
+            throw e;
+        } catch (TException | RuntimeException e) {
+            if (Thread.currentThread().isInterrupted()) {
+                // cancelled for being late, which says it's slow but not that it failed
+                peerStats.success(node, System.nanoTime() - start);
+            } else {
+                peerStats.failure(node);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @param ordered
+     * @param quorumVotes
+     * @param votes
+     * @return how many nodes from the start of the list it takes to have enough votes
+     */
+    private int fixedQuorumSize(List<Node> ordered, int quorumVotes, ToIntFunction<Node> votes) {
+        int collected = 0;
+        for (int i = 0; i < ordered.size(); i++) {
+            collected += votes.applyAsInt(ordered.get(i));
+            if (collected >= quorumVotes) {
+                return i + 1;
+            }
+        }
+        return ordered.size();
+    }
+
+    /**
+     * @param ordered nodes in the order they should be picked
+     * @param quorumVotes
+     * @return the nodes to contact for a quorum, the fixed quorum plus any extra nodes
+     */
+    private List<Node> contacted(List<Node> ordered, int quorumVotes) {
+        int fixedSize = fixedQuorumSize(ordered, quorumVotes, quorumConfig::votes);
+        if (!firstNQuorum) {
+            return ordered.subList(0, fixedSize);
+        }
+        // negative extra means ask everyone
+        return quorumExtra < 0 ? ordered : ordered.subList(0, Math.min(fixedSize + quorumExtra, ordered.size()));
+    }
+
+    private List<Node> createLocalQuorum(int quorumVotes) {
+        // same as createQuorum, but with this node always in the fixed part
+        List<Node> quorum = new ArrayList<>(nodes);
+        quorum.remove(thisNode);
+        quorum = orderMembers(quorum);
+        quorum.add(0, thisNode);
+        return contacted(quorum, quorumVotes);
+    }
+
+    private List<Node> createQuorum(int quorumVotes) {
+        return contacted(orderMembers(nodes), quorumVotes);
+    }
+
+    /**
+     * order the candidates for a quorum. nodes with more votes are picked more often, so a
+     * quorum takes fewer of them, and nodes without votes only ever come last.
+     *
+     * @param candidates
+     * @return the candidates in the order they should be picked for a quorum
+     */
+    private List<Node> orderMembers(List<Node> candidates) {
+        if (latencyQuorum) {
+            return peerStats.rank(candidates, quorumConfig::votes);
+        }
+        // a random order, weighted by votes: each node draws an exponential time, shorter with more votes
+        Map<Node, Double> draws = new HashMap<>();
+        for (Node node : candidates) {
+            int nodeVotes = quorumConfig.votes(node);
+            draws.put(node, nodeVotes == 0 ? Double.MAX_VALUE
+                    : -Math.log(1 - ThreadLocalRandom.current().nextDouble()) / nodeVotes);
+        }
+        List<Node> ordered = new ArrayList<>(candidates);
+        ordered.sort(Comparator.comparing(draws::get));
+        return ordered;
+    }
+
+    private void adaptQuorums() {
+        /* reads and writes on the old and the new quorums must overlap while switching. a larger
+           read quorum goes first, so it overlaps both the old and the new write quorum. a smaller
+           read quorum has to wait until no file is left on fewer nodes than the new write quorum:
+           the new write quorum goes first, then a synchronization brings every file to every node. */
+        int adaptDelay = Integer.parseInt(prop.getProperty("quorum.adapt.delay", "10000"));
+        while (true) {
+            try {
+                // run till this program runs, sleeping for a delay after each run
+                Thread.sleep(adaptDelay);
+                AdaptiveQuorum.Pair next = quorums.choose();
+                if (next == null) {
+                    continue;
+                }
+                AdaptiveQuorum.Pair current = quorums.current();
+                System.out.printf("Switching quorums from %s to %s (read:write votes)...\n", current, next);
+                if (next.read >= current.read) {
+                    quorums.setRead(next.read);
+                    quorums.setWrite(next.write);
+                } else {
+                    quorums.setWrite(next.write);
+                    syncOnce();
+                    quorums.setRead(next.read);
+                }
+                quorums.switched();
+                System.out.printf("Switched quorums from %s to %s.\n", current, next);
+            } catch (TException e) {
+                System.out.printf("Switching quorums failed, now at %s.\n", quorums.current());
+                e.printStackTrace();
+            } catch (InterruptedException e) {
+                System.out.println("adaptQuorums() interrupted.");
+                return;
+            }
+        }
+    }
+
+    private void synchronize() {
+        /* every node is asked for its versions - a listing per node is cheap, and knowing exactly
+           which nodes are stale means only those have to be written to. */
+        while (true) {
+            try {
+                // run till this program runs, sleeping for a delay after each run
+                Thread.sleep(Integer.parseInt(prop.getProperty("node.syncdelay")));
+                syncOnce();
+            } catch (InterruptedException | TException e) {
+                System.out.println("synchronize() failed.");
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * one synchronization run: bring every node up to the latest version of every file this
+     * coordinator owns.
+     *
+     * @throws TException if a node couldn't be listed or written to
+     */
+    private void syncOnce() throws TException {
+        System.out.println("synchronize() begins...");
+        Map<Node, Map<String, Integer>> nodeVersions = fanOutAll(nodes, this::allVersions);
+        Map<String, Integer> latestVersions = new HashMap<>();
+        for (Map<String, Integer> versions : nodeVersions.values()) {
+            for (Map.Entry<String, Integer> nameVersion : versions.entrySet()) {
+                latestVersions.merge(nameVersion.getKey(), nameVersion.getValue(), Math::max);
+            }
+        }
+        // the other coordinators sync their own files
+        latestVersions.keySet().removeIf(name -> !ring.owner(name).equals(thisNode));
+        int synced = 0;
+        for (Map.Entry<String, Integer> latest : latestVersions.entrySet()) {
+            String fileName = latest.getKey();
+            // find the node which has the latest version of this file, and the ones that are stale
+            Node latestNode = null;
+            List<Node> staleNodes = new ArrayList<>();
+            for (Map.Entry<Node, Map<String, Integer>> versions : nodeVersions.entrySet()) {
+                int version = versions.getValue().getOrDefault(fileName, 0);
+                if (version < latest.getValue()) {
+                    staleNodes.add(versions.getKey());
+                } else if (latestNode == null || versions.getKey().equals(thisNode)) {
+                    latestNode = versions.getKey();
+                }
+            }
+            if (staleNodes.isEmpty()) {
+                if (versionCache != null) {
+                    versionCache.record(fileName, latest.getValue(), nodeVersions.keySet());
+                }
+                continue;
+            }
+            // all writes must be sequential - even synchronize.
+            fileLocks.lock(fileName);
+            try {
+                int syncedVersion = dedupChunker != null
+                        ? syncManifest(fileName, latestNode, staleNodes)
+                        : syncContent(fileName, latestNode, staleNodes);
+                if (versionCache != null) {
+                    // the stale nodes have caught up with the latest node
+                    List<Node> holders = new ArrayList<>(staleNodes);
+                    holders.add(latestNode);
+                    versionCache.record(fileName, syncedVersion, holders);
+                }
+                synced++;
+            } finally {
+                fileLocks.unlock(fileName);
+            }
+        }
+        System.out.printf("synchronize() ends, %d of %d files were stale.\n", synced, latestVersions.size());
+    }
+
+    /**
+     * copy the latest version of a file to the stale nodes, with the file lock held.
+     *
+     * @param fileName
+     * @param latestNode
+     * @param staleNodes
+     * @return the version copied
+     * @throws TException
+     */
+    private int syncContent(String fileName, Node latestNode, List<Node> staleNodes) throws TException {
+        // get the contents of the latest file, with the version it belongs to, a chunk at most
+        ContentChunk latestContent;
+        if (latestNode.equals(thisNode)) {
+            // if this is the same node
+            latestContent = quorumReadChunk(fileName, 0, 0, chunkSize);
+        } else {
+            latestContent = pool.call(latestNode, client -> client.quorumReadChunk(fileName, 0, 0, chunkSize));
+        }
+
+        if (latestContent.data.remaining() < latestContent.size) {
+            // too large for a single call
+            copyChunks(fileName, latestNode, staleNodes, latestContent);
+        } else {
+            // write this latest content to every node that is stale
+            for (Node node : staleNodes) {
+                if (node.equals(thisNode)) {
+                    // if this is the same node
+                    quorumWriteBytes(fileName, latestContent.data, latestContent.version);
+                } else {
+                    pool.call(node, client -> client.quorumWriteBytes(fileName, latestContent.data, latestContent.version));
+                }
+            }
+        }
+        return latestContent.version;
+    }
+
+    /**
+     * offer the manifest of the latest version of a file to the stale nodes, with the chunks
+     * they're missing fetched from the latest node. with the file lock held.
+     *
+     * @param fileName
+     * @param latestNode
+     * @param staleNodes
+     * @return the version copied
+     * @throws TException
+     */
+    private int syncManifest(String fileName, Node latestNode, List<Node> staleNodes) throws TException {
+        ChunkManifest manifest;
+        ChunkSource source;
+        if (latestNode.equals(thisNode)) {
+            // if this is the same node
+            manifest = quorumManifest(fileName);
+            source = this::quorumGetChunks;
+        } else {
+            manifest = pool.call(latestNode, client -> client.quorumManifest(fileName));
+            source = hashes -> pool.call(latestNode, client -> client.quorumGetChunks(hashes));
+        }
+        if (manifest.hashes.isEmpty()) {
+            // small files are kept without chunks, and copied as they are
+            return syncContent(fileName, latestNode, staleNodes);
+        }
+        for (Node node : staleNodes) {
+            if (node.equals(thisNode)) {
+                offerManifest(this, fileName, manifest.version, manifest.hashes, manifest.size, source);
+            } else {
+                pool.call(node, client -> offerManifest(client, fileName, manifest.version, manifest.hashes, manifest.size, source));
+            }
+        }
+        return manifest.version;
+    }
+
+    /**
+     * copy a file from one node to others a chunk at a time, staged on the others and committed
+     * there at the version it has on the first one. with the file lock held.
+     *
+     * @param fileName
+     * @param from
+     * @param to
+     * @param first first chunk of the file, read from the node copied from
+     * @throws TException
+     */
+    private void copyChunks(String fileName, Node from, List<Node> to, ContentChunk first) throws TException {
+        String uploadId = UUID.randomUUID().toString();
+        ContentChunk chunk = first;
+        long offset = 0;
+        while (true) {
+            ByteBuffer data = chunk.data;
+            long chunkOffset = offset;
+            for (Node node : to) {
+                if (node.equals(thisNode)) {
+                    // if this is the same node
+                    quorumWriteChunk(fileName, uploadId, chunkOffset, data);
+                } else {
+                    pool.call(node, client -> {
+                        client.quorumWriteChunk(fileName, uploadId, chunkOffset, data);
+                        return null;
+                    });
+                }
+            }
+            offset += data.remaining();
+            if (offset >= first.size || !data.hasRemaining()) {
+                break;
+            }
+            long nextOffset = offset;
+            if (from.equals(thisNode)) {
+                chunk = quorumReadChunk(fileName, first.version, nextOffset, chunkSize);
+            } else {
+                chunk = pool.call(from, client -> client.quorumReadChunk(fileName, first.version, nextOffset, chunkSize));
+            }
+        }
+        for (Node node : to) {
+            if (node.equals(thisNode)) {
+                quorumCommit(fileName, uploadId, first.version, first.size);
+            } else {
+                pool.call(node, client -> client.quorumCommit(fileName, uploadId, first.version, first.size));
+            }
+        }
+    }
+
+    @Override
+    public List<PeerScore> peerScores() throws TException {
+        return peerStats.peerScores(nodes);
+    }
+
+    @Override
+    public QuorumState quorumState() throws TException {
+        if (quorums == null) {
+            throw new DFSError("This node isn't a coordinator.");
+        }
+        return quorums.state();
+    }
+
+    String quorumStats() {
+        return String.format("quorum: mode=%s select=%s rounds=%d savedByExtra=%d fasterByExtra=%d cancelled=%d failedReplies=%d "
+                        + "versionedReads(local/remote)=%d/%d",
+                firstNQuorum ? "firstn" : "fixed", latencyQuorum ? "latency" : "random", quorumRounds.get(), quorumSaves.get(), quorumSpeedups.get(),
+                quorumCancelled.get(), quorumFailedReplies.get(),
+                versionedReadsLocal.get(), versionedReadsRemote.get());
+    }
+
+    String transferStats() {
+        long offered = offeredBytes.get();
+        return String.format("transfers: dedup=%b manifests=%d offeredKB=%d sentKB=%d saved=%.1f%%",
+                dedupChunker != null, manifestsOffered.get(), offered / 1024, sentChunkBytes.get() / 1024,
+                offered == 0 ? 0.0 : 100.0 * (offered - sentChunkBytes.get()) / offered);
+    }
+
+    String writeStats() {
+        long rounds = coalescedRounds.get();
+        return String.format("writes: coalesce=%b rounds=%d writes=%d avgBatch=%.2f maxBatch=%d patches=%d patchedKB=%d patchFullCopies=%d patchRewrites=%d",
+                coalesceWrites, rounds, coalescedWrites.get(),
+                rounds == 0 ? 0.0 : (double) coalescedWrites.get() / rounds, maxBatch.get(),
+                patches.get(), patchedBytes.get() / 1024, patchFullCopies.get(), patchRewrites.get());
+    }
+
+    private void reportMetrics() {
+        int metricsDelay = Integer.parseInt(prop.getProperty("node.metricsdelay", "30000"));
+        while (true) {
+            try {
+                // run till this program runs, printing the metrics after each delay
+                Thread.sleep(metricsDelay);
+                System.out.println(pool.stats());
+                System.out.println(store.stats());
+                System.out.println(codec.stats());
+                System.out.println(quorumStats());
+                if (dedupChunker != null) {
+                    System.out.println(transferStats());
+                }
+                if (fileLocks != null) {
+                    System.out.println(fileLocks.stats());
+                    System.out.println(writeStats());
+                }
+                if (quorums != null) {
+                    System.out.println(quorums.stats());
+                }
+                if (hedgePolicy != null) {
+                    System.out.println(hedgePolicy.stats());
+                }
+                if (versionCache != null) {
+                    System.out.println(versionCache.stats());
+                }
+                System.out.println(openUploads.stats());
+                System.out.println(stagedUploads.stats());
+            } catch (InterruptedException e) {
+                System.out.println("reportMetrics() interrupted.");
+                return;
+            }
+        }
+    }
+
+    private void expireUploads(long uploadTimeout) {
+        while (true) {
+            try {
+                // run till this program runs, looking for idle uploads a few times per timeout
+                Thread.sleep(Math.max(1000, uploadTimeout / 4));
+                openUploads.expire();
+                stagedUploads.expire();
+            } catch (InterruptedException e) {
+                System.out.println("expireUploads() interrupted.");
+                return;
             }
         }
     }
@@ -0,0 +1,115 @@
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.ToIntFunction;
+
+/**
+ * How fast and how reliable each node has been as a quorum member, as exponentially weighted
+ * moving averages of its call latency and error rate. Both fade while a node isn't called, so
+ * a node that was slow or failing for a while gets picked, and measured, again eventually.
+ */
+public class PeerStats {
+    private final Map<NodeHandler.Node, Score> scores = new ConcurrentHashMap<>();
+    private final double alpha;
+    private final long halfLife;
+    private final double failureMs;
+
+    static class Score {
+        double latencyMs = 0;
+        double errorRate = 0;
+        long updated = 0;
+        long samples = 0;
+        long errors = 0;
+
+        /**
+         * @param now
+         * @param halfLife
+         * @return how much to trust the averages, halved for every halfLife ms since the last update
+         */
+        synchronized double weight(long now, long halfLife) {
+            return Math.pow(0.5, (double) (now - updated) / halfLife);
+        }
+    }
+
+    PeerStats(Properties prop) {
+        // weight of the newest sample
+        alpha = Double.parseDouble(prop.getProperty("peer.alpha", "0.2"));
+        halfLife = Long.parseLong(prop.getProperty("peer.halflife", "3000"));
+        // a failed call is as bad as one that ran into the quorum timeout
+        failureMs = Double.parseDouble(prop.getProperty("quorum.timeout", "5000"));
+    }
+
+    private Score score(NodeHandler.Node node) {
+        return scores.computeIfAbsent(node, key -> new Score());
+    }
+
+    private void addLatency(Score score, double latencyMs) {
+        score.latencyMs = score.samples == 0 ? latencyMs : alpha * latencyMs + (1 - alpha) * score.latencyMs;
+    }
+
+    void success(NodeHandler.Node node, long nanos) {
+        Score score = score(node);
+        long now = System.currentTimeMillis();
+        synchronized (score) {
+            addLatency(score, nanos / 1e6);
+            score.errorRate = (1 - alpha) * score.errorRate * score.weight(now, halfLife);
+            score.updated = now;
+            score.samples++;
+        }
+    }
+
+    void failure(NodeHandler.Node node) {
+        Score score = score(node);
+        long now = System.currentTimeMillis();
+        synchronized (score) {
+            addLatency(score, failureMs);
+            score.errorRate = alpha + (1 - alpha) * score.errorRate * score.weight(now, halfLife);
+            score.updated = now;
+            score.samples++;
+            score.errors++;
+        }
+    }
+
+    /**
+     * order nodes best first: low latency, few errors, many votes, with some randomness. each
+     * node gets a random exponential multiple of its expected time per vote, so a node ten times
+     * slower than another still comes before it about one time in eleven. nodes never called yet
+     * come first, nodes without votes last.
+     *
+     * @param nodes
+     * @param votes
+     * @return
+     */
+    List<NodeHandler.Node> rank(Collection<NodeHandler.Node> nodes, ToIntFunction<NodeHandler.Node> votes) {
+        long now = System.currentTimeMillis();
+        Map<NodeHandler.Node, Double> ranks = new HashMap<>();
+        for (NodeHandler.Node node : nodes) {
+            Score score = score(node);
+            double rank;
+            synchronized (score) {
+                // a node failing half the time takes about twice as long to get anything done
+                double weight = score.weight(now, halfLife);
+                rank = score.latencyMs * weight / Math.max(0.01, 1 - score.errorRate * weight);
+            }
+            int nodeVotes = votes.applyAsInt(node);
+            ranks.put(node, nodeVotes == 0 ? Double.MAX_VALUE
+                    : rank / nodeVotes * -Math.log(1 - ThreadLocalRandom.current().nextDouble()));
+        }
+        List<NodeHandler.Node> ranked = new ArrayList<>(nodes);
+        ranked.sort(Comparator.comparing(ranks::get));
+        return ranked;
+    }
+
+    List<PeerScore> peerScores(Collection<NodeHandler.Node> nodes) {
+        long now = System.currentTimeMillis();
+        List<PeerScore> peerScores = new ArrayList<>();
+        for (NodeHandler.Node node : nodes) {
+            Score score = score(node);
+            synchronized (score) {
+                peerScores.add(new PeerScore(node.address, node.port, score.latencyMs,
+                        score.errorRate * score.weight(now, halfLife), score.samples, score.errors));
+            }
+        }
+        return peerScores;
+    }
+}
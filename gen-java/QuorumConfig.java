@@ -0,0 +1,90 @@
+import java.util.*;
+
+/**
+ * The DFS nodes with their Gifford votes, and the read and write quorums in votes. Every node
+ * has one vote unless node.votes says otherwise. Checks that the quorums work out: any read
+ * quorum has to overlap any write quorum, and any two write quorums have to overlap.
+ */
+public class QuorumConfig {
+    final List<NodeHandler.Node> nodes = new ArrayList<>();
+    private final Map<NodeHandler.Node, Integer> votes = new HashMap<>();
+    final int totalVotes;
+    final int readVotes;
+    final int writeVotes;
+
+    /**
+     * @param prop
+     * @throws IllegalArgumentException if the nodes or quorums are set up wrong
+     */
+    QuorumConfig(Properties prop) {
+        String[] addresses = prop.getProperty("node.addresses").split("\\s*,\\s*");
+        String[] ports = prop.getProperty("node.ports").split("\\s*,\\s*");
+        int nodesCount = Integer.parseInt(prop.getProperty("nodes.count"));
+        if (addresses.length != nodesCount || ports.length != nodesCount) {
+            throw new IllegalArgumentException(String.format("nodes.count is %d, but there are %d addresses and %d ports.",
+                    nodesCount, addresses.length, ports.length));
+        }
+        String[] nodeVotes = prop.getProperty("node.votes", String.join(",", Collections.nCopies(nodesCount, "1"))).split("\\s*,\\s*");
+        if (nodeVotes.length != nodesCount) {
+            throw new IllegalArgumentException(String.format("nodes.count is %d, but there are %d node votes.",
+                    nodesCount, nodeVotes.length));
+        }
+
+        int total = 0;
+        for (int i = 0; i < nodesCount; i++) {
+            NodeHandler.Node node = new NodeHandler.Node(addresses[i], Integer.parseInt(ports[i]));
+            int nodeVote = Integer.parseInt(nodeVotes[i]);
+            if (nodeVote < 0) {
+                throw new IllegalArgumentException(String.format("Node %d has %d votes, votes can't be negative.", i, nodeVote));
+            }
+            nodes.add(node);
+            votes.put(node, nodeVote);
+            total += nodeVote;
+        }
+        totalVotes = total;
+        readVotes = Integer.parseInt(prop.getProperty("quorum.read"));
+        writeVotes = Integer.parseInt(prop.getProperty("quorum.write"));
+        checkQuorums(readVotes, writeVotes);
+    }
+
+    /**
+     * @param readVotes
+     * @param writeVotes
+     * @throws IllegalArgumentException if these quorums don't overlap as they should
+     */
+    void checkQuorums(int readVotes, int writeVotes) {
+        if (readVotes < 1 || writeVotes < 1 || readVotes > totalVotes || writeVotes > totalVotes) {
+            throw new IllegalArgumentException(String.format("Quorums of %d (read) and %d (write) votes can't be met with %d votes in total.",
+                    readVotes, writeVotes, totalVotes));
+        }
+        if (readVotes + writeVotes <= totalVotes) {
+            throw new IllegalArgumentException(String.format("Read and write quorums may miss each other: %d + %d votes <= %d votes in total.",
+                    readVotes, writeVotes, totalVotes));
+        }
+        if (2 * writeVotes <= totalVotes) {
+            throw new IllegalArgumentException(String.format("Two write quorums may miss each other: 2 * %d votes <= %d votes in total.",
+                    writeVotes, totalVotes));
+        }
+    }
+
+    /**
+     * @param quorumVotes
+     * @return the fewest nodes that can hold this many votes
+     */
+    int fewestNodes(int quorumVotes) {
+        List<Integer> descending = new ArrayList<>(votes.values());
+        descending.sort(Collections.reverseOrder());
+        int collected = 0;
+        for (int i = 0; i < descending.size(); i++) {
+            collected += descending.get(i);
+            if (collected >= quorumVotes) {
+                return i + 1;
+            }
+        }
+        return descending.size();
+    }
+
+    int votes(NodeHandler.Node node) {
+        return votes.getOrDefault(node, 0);
+    }
+}
@@ -0,0 +1,96 @@
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrent index of the local replicas: one entry per file name with its replica path and
+ * current version. Versions only ever move forward. Lookups and listings never block, and
+ * listings walk the live index, so they may or may not see changes made while they run.
+ */
+public class ReplicaIndex {
+    private final ConcurrentSkipListMap<String, FileEntry> entries = new ConcurrentSkipListMap<>();
+
+    static class FileEntry {
+        final String name;
+        final Path replica;
+        // 0 until the first version has been written
+        final AtomicInteger version = new AtomicInteger();
+
+        FileEntry(String name, Path replica) {
+            this.name = name;
+            this.replica = replica;
+        }
+
+        /**
+         * move the version forward, unless it is already at or past the given one.
+         *
+         * @param newVersion
+         * @return whether the version was moved
+         */
+        boolean advance(int newVersion) {
+            while (true) {
+                int current = version.get();
+                if (current >= newVersion) {
+                    return false;
+                }
+                if (version.compareAndSet(current, newVersion)) {
+                    return true;
+                }
+            }
+        }
+    }
+
+    /**
+     * @param name
+     * @return the entry for this file, null if it isn't known here
+     */
+    FileEntry get(String name) {
+        return entries.get(name);
+    }
+
+    /**
+     * @param name
+     * @param replica where the replica goes, if the file is new
+     * @return the entry for this file, created at version 0 if it isn't known yet
+     */
+    FileEntry getOrCreate(String name, Path replica) {
+        return entries.computeIfAbsent(name, key -> new FileEntry(key, replica));
+    }
+
+    /**
+     * @param name
+     * @return current version of the file, 0 if it doesn't exist here
+     */
+    int version(String name) {
+        FileEntry entry = entries.get(name);
+        return entry != null ? entry.version.get() : 0;
+    }
+
+    /**
+     * @param startAfter
+     * @param maxEntries
+     * @return up to maxEntries existing files with their versions, in name order after startAfter
+     */
+    Map<String, Integer> page(String startAfter, int maxEntries) {
+        Map<String, Integer> page = new HashMap<>();
+        for (FileEntry entry : entries.tailMap(startAfter, false).values()) {
+            if (page.size() >= maxEntries) {
+                break;
+            }
+            int version = entry.version.get();
+            if (version > 0) {
+                page.put(entry.name, version);
+            }
+        }
+        return page;
+    }
+
+    /**
+     * @return all files in name order, safe to walk while the index changes
+     */
+    Iterable<FileEntry> snapshot() {
+        return entries.values();
+    }
+}
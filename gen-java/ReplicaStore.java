@@ -0,0 +1,234 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Where a node keeps its replicas. Versions of a file only ever move forward, and a read always
+ * returns content together with the version it belongs to.
+ */
+public interface ReplicaStore {
+    /**
+     * add the initial files from a directory, each holding its version on the first line and
+     * the content after it. files the store already has are left alone.
+     *
+     * @param source
+     * @throws IOException
+     */
+    void load(Path source) throws IOException;
+
+    /**
+     * store a new version of a file, unless the store already has that version or a newer one.
+     *
+     * @param fileName
+     * @param content left as it is, the bytes are read from a duplicate
+     * @param version
+     * @return the version the file was on before, 0 if it didn't exist
+     * @throws IOException
+     */
+    int write(String fileName, ByteBuffer content, int version) throws IOException;
+
+    /**
+     * @param fileName
+     * @return the current version and content of the file, null if it doesn't exist here
+     * @throws IOException
+     */
+    VersionedData read(String fileName) throws IOException;
+
+    /**
+     * read a part of a file without reading the rest of it.
+     *
+     * @param fileName
+     * @param offset negative counts from the end of the current version
+     * @param length
+     * @return up to length bytes of the current version from offset on, with the version and the
+     * whole size, null if the file doesn't exist here
+     * @throws IOException
+     */
+    ContentChunk readChunk(String fileName, long offset, int length) throws IOException;
+
+    /**
+     * start staging a new version of a file, to be written in pieces. nothing of it is visible
+     * until it is committed.
+     *
+     * @param fileName
+     * @return
+     * @throws IOException
+     */
+    StagedContent stage(String fileName) throws IOException;
+
+    /**
+     * start staging content that is only read back and passed on, never committed here. stores
+     * that get staged content ready for its commit while it comes in can skip that.
+     *
+     * @param fileName
+     * @return
+     * @throws IOException
+     */
+    default StagedContent spool(String fileName) throws IOException {
+        return stage(fileName);
+    }
+
+    /**
+     * store a new version of a file made of its current version with some bytes changed, unless
+     * the file isn't on baseVersion. stores that can't change a file in place copy the rest of it
+     * over from the base version, through staged content.
+     *
+     * @param fileName
+     * @param baseVersion the version the patch applies to, 0 if the file doesn't exist yet
+     * @param offset where the patch starts, at most the size of the base version. -1 is the end
+     * @param data left as it is, the bytes are read from a duplicate
+     * @param version
+     * @return the version the file was on before, the patch was only applied if that is baseVersion
+     * @throws IOException also if the offset is past the end of the file
+     */
+    default int patch(String fileName, int baseVersion, long offset, ByteBuffer data, int version) throws IOException {
+        ContentChunk base = readChunk(fileName, 0, PATCH_COPY_SIZE);
+        if ((base != null ? base.version : 0) != baseVersion) {
+            return base != null ? base.version : 0;
+        }
+        long baseSize = base != null ? base.size : 0;
+        long start = offset < 0 ? baseSize : offset;
+        if (start > baseSize) {
+            throw new IOException(String.format("Offset %d is past the end of %s, %d bytes.", start, fileName, baseSize));
+        }
+        long end = start + data.remaining();
+        StagedContent staged = stage(fileName);
+        try {
+            // in order and without overlaps, so stores that work on staged content as it comes in can
+            long position = 0;
+            ContentChunk piece = base;
+            while (position < baseSize) {
+                if (piece == null) {
+                    piece = readChunk(fileName, position, PATCH_COPY_SIZE);
+                    if (piece == null || piece.version != baseVersion) {
+                        // changed while it was being copied
+                        return piece != null ? piece.version : 0;
+                    }
+                }
+                long pieceEnd = position + piece.data.remaining();
+                if (position < start) {
+                    // the bytes before the patch
+                    ByteBuffer head = piece.data.duplicate();
+                    head.limit(head.position() + (int) (Math.min(pieceEnd, start) - position));
+                    staged.write(position, head);
+                }
+                if (position <= start && start < pieceEnd) {
+                    staged.write(start, data);
+                }
+                if (pieceEnd > end) {
+                    // the bytes after it
+                    ByteBuffer tail = piece.data.duplicate();
+                    tail.position(tail.position() + (int) (Math.max(position, end) - position));
+                    staged.write(Math.max(position, end), tail);
+                }
+                position = pieceEnd;
+                piece = null;
+            }
+            if (start == baseSize) {
+                staged.write(start, data);
+            }
+            return staged.commit(version);
+        } finally {
+            staged.abort();
+        }
+    }
+
+    /**
+     * how much of the base version a patch copies at a time.
+     */
+    int PATCH_COPY_SIZE = 1 << 20;
+
+    /**
+     * @param fileName
+     * @return current version of the file, 0 if it doesn't exist here
+     */
+    int version(String fileName);
+
+    /**
+     * @param startAfter
+     * @param maxEntries
+     * @return up to maxEntries existing files with their versions, in name order after startAfter
+     */
+    Map<String, Integer> page(String startAfter, int maxEntries);
+
+    /**
+     * @return names of all files, in name order
+     */
+    Iterable<String> names();
+
+    /**
+     * @param fileName
+     * @return where the current version of the file is kept
+     */
+    String location(String fileName);
+
+    String stats();
+
+    /**
+     * content of a file being put together in pieces, kept on disk.
+     */
+    interface StagedContent {
+        /**
+         * @param offset
+         * @param data left as it is, the bytes are read from a duplicate
+         * @throws IOException
+         */
+        void write(long offset, ByteBuffer data) throws IOException;
+
+        /**
+         * @param offset
+         * @param length
+         * @return up to length bytes from offset on
+         * @throws IOException
+         */
+        ByteBuffer read(long offset, int length) throws IOException;
+
+        /**
+         * @return end of the furthest piece written
+         */
+        long size();
+
+        /**
+         * make the staged content the given version of the file, all at once, unless the store
+         * already has that version or a newer one. the staged content is gone afterwards.
+         *
+         * @param version
+         * @return the version the file was on before, 0 if it didn't exist
+         * @throws IOException
+         */
+        int commit(int version) throws IOException;
+
+        /**
+         * throw the staged content away.
+         */
+        void abort();
+    }
+
+    /**
+     * @param offset negative counts from the end
+     * @param size
+     * @return where a read from offset starts in content of this size
+     */
+    static long rangeStart(long offset, long size) {
+        return offset < 0 ? Math.max(0, size + offset) : Math.min(offset, size);
+    }
+
+    /**
+     * @param original a file with its version and a newline in front of the content
+     * @return the version and the content bytes, exactly as they are after the first newline
+     * @throws IOException
+     */
+    static VersionedData readOriginal(Path original) throws IOException {
+        byte[] bytes = Files.readAllBytes(original);
+        int newline = 0;
+        while (newline < bytes.length && bytes[newline] != '\n') {
+            newline++;
+        }
+        VersionedData data = new VersionedData(Integer.parseInt(new String(bytes, 0, newline, "US-ASCII").trim()));
+        int start = Math.min(newline + 1, bytes.length);
+        data.content = ByteBuffer.wrap(bytes, start, bytes.length - start).slice();
+        return data;
+    }
+}
@@ -0,0 +1,64 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Staged content kept in a temporary file, written with positional writes, so pieces can come
+ * in any order and from several threads at once. The file may keep some room in front of the
+ * content, for a store to fill in with a header when committing.
+ */
+abstract class StagedFile implements ReplicaStore.StagedContent {
+    final Path path;
+    final FileChannel channel;
+    // bytes in front of the content
+    final int headerSpace;
+    private final AtomicLong size = new AtomicLong();
+
+    StagedFile(Path path, int headerSpace) throws IOException {
+        this.path = path;
+        this.headerSpace = headerSpace;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    @Override
+    public void write(long offset, ByteBuffer data) throws IOException {
+        ByteBuffer bytes = data.duplicate();
+        long end = offset + bytes.remaining();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes, headerSpace + offset + bytes.position() - data.position());
+        }
+        size.accumulateAndGet(end, Math::max);
+    }
+
+    @Override
+    public ByteBuffer read(long offset, int length) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate((int) Math.max(0, Math.min(length, size() - offset)));
+        while (bytes.hasRemaining()) {
+            if (channel.read(bytes, headerSpace + offset + bytes.position()) < 0) {
+                break;
+            }
+        }
+        bytes.flip();
+        return bytes;
+    }
+
+    @Override
+    public long size() {
+        return size.get();
+    }
+
+    @Override
+    public void abort() {
+        try {
+            channel.close();
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            System.out.printf("Couldn't remove staged content %s: %s\n", path, e);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * UTF-8 conversion for the string services, which sit on top of the raw bytes ones. Content is
+ * kept and sent as bytes everywhere else.
+ */
+public class TextContent {
+    // decode buffers up to this size are kept per thread, so decoding only allocates the string
+    private static final int KEEP_CHARS = 1 << 20;
+    private static final ThreadLocal<CharBuffer> decodeBuffers = ThreadLocal.withInitial(() -> CharBuffer.allocate(4096));
+    private static final ThreadLocal<CharsetDecoder> decoders = ThreadLocal.withInitial(() -> StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE));
+
+    static ByteBuffer encode(String content) {
+        return ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param content left as it is, the bytes are read from a duplicate
+     * @return
+     */
+    static String decode(ByteBuffer content) {
+        ByteBuffer bytes = content.duplicate();
+        // utf-8 never has more chars than bytes
+        CharBuffer chars = decodeBuffers.get();
+        if (chars.capacity() < bytes.remaining()) {
+            chars = CharBuffer.allocate(bytes.remaining());
+            if (bytes.remaining() <= KEEP_CHARS) {
+                decodeBuffers.set(chars);
+            }
+        }
+        chars.clear();
+        CharsetDecoder decoder = decoders.get().reset();
+        decoder.decode(bytes, chars, true);
+        decoder.flush(chars);
+        chars.flip();
+        return chars.toString();
+    }
+}
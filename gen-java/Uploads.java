@@ -0,0 +1,124 @@
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Uploads in progress on a node, each staging the content of a file until it's committed.
+ * Uploads nobody touched for a while are thrown away, so an abandoned one doesn't keep its
+ * staged content around forever.
+ */
+public class Uploads {
+    private final String role;
+    private final ReplicaStore store;
+    private final boolean spool;
+    private final long idleTimeout;
+    private final Map<String, Upload> uploads = new ConcurrentHashMap<>();
+
+    // metrics
+    private final AtomicLong opened = new AtomicLong();
+    private final AtomicLong committed = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+    private final AtomicLong stagedBytes = new AtomicLong();
+
+    static class Upload {
+        final String fileName;
+        final ReplicaStore.StagedContent staged;
+        volatile long touched = System.currentTimeMillis();
+
+        Upload(String fileName, ReplicaStore.StagedContent staged) {
+            this.fileName = fileName;
+            this.staged = staged;
+        }
+    }
+
+    /**
+     * @param role what the uploads are for, to tell them apart in the metrics
+     * @param store where to stage the content
+     * @param spool whether the content is only passed on, not committed to the store
+     * @param idleTimeout ms
+     */
+    Uploads(String role, ReplicaStore store, boolean spool, long idleTimeout) {
+        this.role = role;
+        this.store = store;
+        this.spool = spool;
+        this.idleTimeout = idleTimeout;
+    }
+
+    /**
+     * @param uploadId
+     * @param fileName
+     * @return the upload, opened now if it isn't known yet
+     * @throws DFSError if the upload is for another file
+     */
+    Upload open(String uploadId, String fileName) throws DFSError {
+        Upload upload;
+        try {
+            upload = uploads.computeIfAbsent(uploadId, key -> {
+                try {
+                    opened.incrementAndGet();
+                    return new Upload(fileName, spool ? store.spool(fileName) : store.stage(fileName));
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            throw new DFSError(String.format("Error staging File %s", fileName));
+        }
+        return touch(upload, uploadId, fileName);
+    }
+
+    /**
+     * @param uploadId
+     * @param fileName
+     * @return the upload
+     * @throws DFSError if there is no such upload for this file, e.g. because it expired
+     */
+    Upload get(String uploadId, String fileName) throws DFSError {
+        return touch(uploads.get(uploadId), uploadId, fileName);
+    }
+
+    private Upload touch(Upload upload, String uploadId, String fileName) throws DFSError {
+        if (upload == null || !upload.fileName.equals(fileName)) {
+            throw new DFSError(String.format("No upload %s of File %s on this node, it may have expired.", uploadId, fileName));
+        }
+        upload.touched = System.currentTimeMillis();
+        return upload;
+    }
+
+    void staged(long bytes) {
+        stagedBytes.addAndGet(bytes);
+    }
+
+    /**
+     * stop tracking an upload, once it's committed.
+     *
+     * @param uploadId
+     */
+    void remove(String uploadId) {
+        if (uploads.remove(uploadId) != null) {
+            committed.incrementAndGet();
+        }
+    }
+
+    /**
+     * throw away the uploads that were idle for too long.
+     */
+    void expire() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, Upload> entry : uploads.entrySet()) {
+            Upload upload = entry.getValue();
+            if (now - upload.touched > idleTimeout && uploads.remove(entry.getKey(), upload)) {
+                System.out.printf("Upload %s of File %s expired.\n", entry.getKey(), upload.fileName);
+                upload.staged.abort();
+                expired.incrementAndGet();
+            }
+        }
+    }
+
+    String stats() {
+        return String.format("uploads(%s): open=%d opened=%d committed=%d expired=%d staged=%dKB",
+                role, uploads.size(), opened.get(), committed.get(), expired.get(), stagedBytes.get() / 1024);
+    }
+}
@@ -0,0 +1,97 @@
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * What the coordinator knows about its files: the newest committed version of each, and the
+ * nodes known to hold it. Only filled in by writes and synchronize, both of which go through
+ * the coordinator, so an empty or missing entry just means a full quorum read is needed.
+ */
+public class VersionCache {
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    // metrics
+    final AtomicLong hits = new AtomicLong();
+    final AtomicLong misses = new AtomicLong();
+    final AtomicLong stale = new AtomicLong();
+    final AtomicLong hitNanos = new AtomicLong();
+    final AtomicLong missNanos = new AtomicLong();
+
+    static class Entry {
+        final int version;
+        final Set<NodeHandler.Node> holders;
+
+        Entry(int version, Set<NodeHandler.Node> holders) {
+            this.version = version;
+            this.holders = holders;
+        }
+    }
+
+    /**
+     * @param fileName
+     * @return the newest version and its holders, null if not known
+     */
+    Entry get(String fileName) {
+        return entries.get(fileName);
+    }
+
+    /**
+     * remember that these nodes hold this version. an older version than the known one is
+     * ignored, the same version adds to the holders.
+     *
+     * @param fileName
+     * @param version
+     * @param holders
+     */
+    void record(String fileName, int version, Collection<NodeHandler.Node> holders) {
+        entries.compute(fileName, (name, entry) -> {
+            if (entry == null || version > entry.version) {
+                return new Entry(version, Collections.unmodifiableSet(new HashSet<>(holders)));
+            }
+            if (version < entry.version) {
+                return entry;
+            }
+            Set<NodeHandler.Node> merged = new HashSet<>(entry.holders);
+            merged.addAll(holders);
+            return new Entry(version, Collections.unmodifiableSet(merged));
+        });
+    }
+
+    /**
+     * forget a file, e.g. while a write is changing it.
+     *
+     * @param fileName
+     */
+    void invalidate(String fileName) {
+        entries.remove(fileName);
+    }
+
+    /**
+     * forget a holder that turned out not to have the version.
+     *
+     * @param fileName
+     * @param version
+     * @param holder
+     */
+    void dropHolder(String fileName, int version, NodeHandler.Node holder) {
+        stale.incrementAndGet();
+        entries.computeIfPresent(fileName, (name, entry) -> {
+            if (entry.version != version) {
+                return entry;
+            }
+            Set<NodeHandler.Node> remaining = new HashSet<>(entry.holders);
+            remaining.remove(holder);
+            return remaining.isEmpty() ? null : new Entry(version, Collections.unmodifiableSet(remaining));
+        });
+    }
+
+    String stats() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        long reads = hitCount + missCount;
+        return String.format("versionCache: files=%d hits=%d misses=%d staleHolders=%d hitRate=%.1f%% avgHit=%.2fms avgMiss=%.2fms",
+                entries.size(), hitCount, missCount, stale.get(), reads == 0 ? 0.0 : 100.0 * hitCount / reads,
+                hitCount == 0 ? 0.0 : hitNanos.get() / 1e6 / hitCount,
+                missCount == 0 ? 0.0 : missNanos.get() / 1e6 / missCount);
+    }
+}